@@ -0,0 +1,80 @@
+package com.socialmediaassignment.team3.benchmarks;
+
+import com.socialmediaassignment.team3.Team3Application;
+import com.socialmediaassignment.team3.caches.FollowGraph;
+import com.socialmediaassignment.team3.caches.NameFilters;
+import com.socialmediaassignment.team3.repositories.TimelineRepository;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import com.socialmediaassignment.team3.services.TweetService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+
+/*
+    The application booted against a throwaway embedded PostgreSQL and seeded with a synthetic dataset.
+    The scale is a set of JMH parameters, e.g. `-p users=10000 -p followsPerUser=200`.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+    @Param({"1000"})
+    public int users;
+
+    @Param({"20"})
+    public int tweetsPerUser;
+
+    @Param({"50"})
+    public int followsPerUser;
+
+    // Size of each reply tree that the context benchmark reads from
+    @Param({"200"})
+    public int threadSize;
+
+    @Param({"42"})
+    public long seed;
+
+    TweetService tweetService;
+    BenchmarkDataset dataset;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // Command line arguments, so they win over the application's own application.properties
+        context = new SpringApplicationBuilder(Team3Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--tweeter.counters.reconcile-interval=PT24H",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=ERROR");
+
+        dataset = BenchmarkDataset.seed(context.getBean(JdbcTemplate.class),
+                users, tweetsPerUser, followsPerUser, threadSize, seed);
+        context.getBean(TimelineRepository.class).rebuildAll();
+        context.getBean(TweetRepository.class).reconcileCounters();
+        context.getBean(UserRepository.class).reconcileCounters();
+        // The seed bypasses the services, so the name filters, follow graph and second-level cache have never seen it
+        context.getBean(NameFilters.class).rebuild();
+        context.getBean(FollowGraph.class).load();
+        context.getBean(EntityManagerFactory.class).getCache().evictAll();
+
+        tweetService = context.getBean(TweetService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
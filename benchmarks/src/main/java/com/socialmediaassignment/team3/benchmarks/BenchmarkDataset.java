@@ -0,0 +1,93 @@
+package com.socialmediaassignment.team3.benchmarks;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/*
+    Bulk loads users, tweets, follows and reply threads with plain JDBC; going through the services
+    would take longer than the benchmarks themselves. Ids come from a block reserved on hibernate_sequence.
+ */
+final class BenchmarkDataset {
+    static final String PASSWORD = "password";
+    private static final int THREADS = 10;
+    private static final int TOPICS = 50;
+    private static final long WINDOW_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private final List<String> usernames;
+    private final List<Long> threadTweetIds;
+
+    private BenchmarkDataset(List<String> usernames, List<Long> threadTweetIds) {
+        this.usernames = usernames;
+        this.threadTweetIds = threadTweetIds;
+    }
+
+    String username(int index) {
+        return usernames.get(Math.floorMod(index, usernames.size()));
+    }
+
+    Long threadTweetId(int index) {
+        return threadTweetIds.get(Math.floorMod(index, threadTweetIds.size()));
+    }
+
+    static BenchmarkDataset seed(JdbcTemplate jdbc, int users, int tweetsPerUser, int followsPerUser, int threadSize, long seed) {
+        Random random = new Random(seed);
+        long total = users + (long) users * tweetsPerUser + (long) THREADS * threadSize;
+        long nextId = jdbc.queryForObject("SELECT nextval('hibernate_sequence')", Long.class);
+        jdbc.queryForObject("SELECT setval('hibernate_sequence', ?)", Long.class, nextId + total);
+        long now = System.currentTimeMillis();
+
+        List<String> usernames = new ArrayList<>(users);
+        long[] userIds = new long[users];
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userIds[i] = nextId++;
+            usernames.add("bench-user-" + i);
+            userRows.add(new Object[]{userIds[i], usernames.get(i), PASSWORD, "bench-user-" + i + "@example.com",
+                    new Timestamp(now - WINDOW_MILLIS)});
+        }
+        jdbc.batchUpdate("INSERT INTO user_table (id, username, password, email, created_on, deleted, " +
+                "follower_count, following_count) VALUES (?, ?, ?, ?, ?, false, 0, 0)", userRows);
+
+        List<Object[]> followRows = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            Set<Integer> following = new HashSet<>();
+            while (following.size() < Math.min(followsPerUser, users - 1)) {
+                int other = random.nextInt(users);
+                if (other != i && following.add(other))
+                    followRows.add(new Object[]{userIds[i], userIds[other]});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO follower_following_mapping (follower_id, following_id) VALUES (?, ?)", followRows);
+
+        List<Object[]> tweetRows = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            for (int j = 0; j < tweetsPerUser; j++) {
+                tweetRows.add(new Object[]{nextId++, userIds[i], null,
+                        "tweet " + j + " from @" + usernames.get(i) + " #topic" + random.nextInt(TOPICS),
+                        new Timestamp(now - (long) (random.nextDouble() * WINDOW_MILLIS))});
+            }
+        }
+
+        // Each reply picks a random earlier tweet of its thread, which gives trees a few dozen levels deep
+        List<Long> threadTweetIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<Long> thread = new ArrayList<>(threadSize);
+            long posted = now - WINDOW_MILLIS / 2;
+            for (int j = 0; j < threadSize; j++) {
+                long id = nextId++;
+                Long replyTo = thread.isEmpty() ? null : thread.get(random.nextInt(thread.size()));
+                tweetRows.add(new Object[]{id, userIds[random.nextInt(users)], replyTo,
+                        "reply " + j + " in thread " + i, new Timestamp(posted += 1000)});
+                thread.add(id);
+            }
+            threadTweetIds.addAll(thread);
+        }
+        jdbc.batchUpdate("INSERT INTO tweet (id, author_id, reply_to_id, content, created_on, deleted, " +
+                "like_count, repost_count, reply_count) VALUES (?, ?, ?, ?, ?, false, 0, 0, 0)", tweetRows);
+
+        Collections.shuffle(threadTweetIds, random);
+        return new BenchmarkDataset(usernames, threadTweetIds);
+    }
+}
@@ -0,0 +1,73 @@
+package com.socialmediaassignment.team3.benchmarks;
+
+import com.socialmediaassignment.team3.utils.ContentTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentTokenizerBenchmark {
+    @Param({"short", "tagged", "long"})
+    private String shape;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        switch (shape) {
+            case "short":
+                content = "Just setting up my tweeter @felo #hello";
+                break;
+            case "tagged":
+                content = "@felo @angulo @test-username-1 #spring #boot #jpa #postgres #mapstruct #lombok #java #api";
+                break;
+            default:
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < 200; i++)
+                    builder.append("some words in a long thread @user").append(i).append(" #topic").append(i % 17).append(' ');
+                content = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        ContentTokenizer.TokenizedContent tokens = ContentTokenizer.tokenize(content);
+        blackhole.consume(tokens.getMentions());
+        blackhole.consume(tokens.getHashtags());
+    }
+
+    @Benchmark
+    public void legacyGetMatches(Blackhole blackhole) {
+        blackhole.consume(legacyGetMatches(content, "@"));
+        blackhole.consume(legacyGetMatches(content, "#"));
+    }
+
+    // Verbatim copy of the parser TweetServiceImpl used before ContentTokenizer, kept as the baseline
+    private static List<String> legacyGetMatches(String text, String matchBegin) {
+        Set<Character> specialChars = Set.of('@', ' ', '#');
+
+        int pointer = 0;
+        List<String> matchList = new ArrayList<>();
+
+        while (text.indexOf(matchBegin, pointer) >= 0) {
+            pointer = text.indexOf(matchBegin, pointer);
+            String username = "";
+            int auxPointer = pointer + 1;
+            while (auxPointer < text.length() && !specialChars.contains(text.charAt(auxPointer)))
+                username = username + text.charAt(auxPointer++);
+            matchList.add(username);
+            pointer = auxPointer;
+        }
+
+        return  matchList;
+    }
+}
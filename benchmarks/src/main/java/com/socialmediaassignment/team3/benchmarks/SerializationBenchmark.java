@@ -0,0 +1,81 @@
+package com.socialmediaassignment.team3.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.dtos.TweetResponseDto;
+import com.socialmediaassignment.team3.entities.Tweet;
+import com.socialmediaassignment.team3.entities.User;
+import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import com.socialmediaassignment.team3.entities.embeddable.Profile;
+import com.socialmediaassignment.team3.mappers.TweetMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The response side of every list endpoint, on detached entities built in memory so no database is involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"20", "100"})
+    private int size;
+
+    private final TweetMapper tweetMapper = Mappers.getMapper(TweetMapper.class);
+    // Configured the way Spring Boot configures the one used by the controllers
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Tweet> tweets;
+    private List<TweetResponseDto> dtos;
+
+    @Setup
+    public void setUp() {
+        List<User> authors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User author = new User();
+            author.setId((long) i);
+            author.setCredential(new Credential("bench-user-" + i, BenchmarkDataset.PASSWORD));
+            author.setProfile(new Profile("First" + i, "Last" + i, "bench-user-" + i + "@example.com", "555-0100"));
+            author.setJoined(new Date());
+            authors.add(author);
+        }
+
+        tweets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Tweet tweet = new Tweet();
+            tweet.setId(1000L + i);
+            tweet.setAuthor(authors.get(i % authors.size()));
+            tweet.setContent("tweet " + i + " mentioning @bench-user-" + (i + 1) % 10 + " #topic" + i % 7);
+            tweet.setPosted(new Date());
+            // Every third tweet is a reply, like a busy feed
+            if (i % 3 == 2)
+                tweet.setInReplyTo(tweets.get(i - 1));
+            tweets.add(tweet);
+        }
+        dtos = tweetMapper.entitiesToDtos(tweets);
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> mapEntitiesToDtos() {
+        return tweetMapper.entitiesToDtos(tweets);
+    }
+
+    @Benchmark
+    public byte[] serializeDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tweetMapper.entitiesToDtos(tweets));
+    }
+}
@@ -0,0 +1,49 @@
+package com.socialmediaassignment.team3.benchmarks;
+
+import com.socialmediaassignment.team3.dtos.ContextResponseDto;
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetResponseDto;
+import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    End to end service calls against the seeded database: SQL, entity loading and DTO mapping, without HTTP.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TweetServiceBenchmark {
+
+    // Walks users and tweets in a fixed order so every run touches the same rows
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getUserFeed(ApplicationState app, Cursor cursor) {
+        return app.tweetService.getUserFeed(app.dataset.username(cursor.next++), new CursorRequestDto());
+    }
+
+    @Benchmark
+    public ContextResponseDto getContextForTweet(ApplicationState app, Cursor cursor) {
+        return app.tweetService.getContextForTweet(app.dataset.threadTweetId(cursor.next++), null, null);
+    }
+
+    // Tokenizes the content, upserts its hashtags, resolves its mentions, then saves and fans out the tweet
+    @Benchmark
+    public TweetResponseDto createTweet(ApplicationState app, Cursor cursor) {
+        int index = cursor.next++;
+        TweetRequestDto request = new TweetRequestDto();
+        request.setCredentials(new Credential(app.dataset.username(index), BenchmarkDataset.PASSWORD));
+        request.setContent("benchmarking @" + app.dataset.username(index + 1) + " and @" + app.dataset.username(index + 2) +
+                " #topic" + index % 50 + " #benchmark");
+        return app.tweetService.createTweet(request);
+    }
+}
@@ -2,8 +2,10 @@ package com.socialmediaassignment.team3;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Team3Application {
 
 	public static void main(String[] args) {
@@ -0,0 +1,180 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    The whole follow graph in memory as sorted arrays of user ids, one per user and direction, so follow checks and
+    follower lists don't have to go through the mapping table. Arrays are never modified once published: a follow
+    or unfollow replaces the user's array with an updated copy, so readers can keep using the array they were given.
+
+    The graph is loaded once the application is ready, after any bulk load, and callers go to the database until
+    then. Changes are applied after their transaction commits; changes committed while a load is running are
+    replayed on top of it, adding or removing an edge twice has no effect.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FollowGraph {
+    private static final long[] NONE = new long[0];
+    private static final int FETCH_SIZE = 10_000;
+    private static final String FOLLOWING = "SELECT follower_id, following_id FROM follower_following_mapping " +
+            "ORDER BY follower_id, following_id";
+    private static final String FOLLOWERS = "SELECT following_id, follower_id FROM follower_following_mapping " +
+            "ORDER BY following_id, follower_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    // Replaced as a whole by a reload, readers never see a half loaded graph
+    private volatile Map<Long, long[]> following = new ConcurrentHashMap<>();
+    private volatile Map<Long, long[]> followers = new ConcurrentHashMap<>();
+    // Changes committed during a load, guarded by this
+    private List<Change> replay;
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long started = System.currentTimeMillis();
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Map<Long, long[]> loadedFollowing = _loadAdjacency(FOLLOWING);
+        Map<Long, long[]> loadedFollowers = _loadAdjacency(FOLLOWERS);
+        long edges = loadedFollowing.values().stream().mapToLong(ids -> ids.length).sum();
+        synchronized (this) {
+            following = loadedFollowing;
+            followers = loadedFollowers;
+            replay.forEach(this::_apply);
+            replay = null;
+            loaded = true;
+        }
+        log.info("Loaded follow graph with {} edges between {} users in {} ms",
+                edges, loadedFollowing.size(), System.currentTimeMillis() - started);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Sorted ids of the users this user follows, callers must not modify the array
+    public long[] following(long userId) {
+        return following.getOrDefault(userId, NONE);
+    }
+
+    // Sorted ids of the users following this user, callers must not modify the array
+    public long[] followers(long userId) {
+        return followers.getOrDefault(userId, NONE);
+    }
+
+    public boolean isFollowing(long followerId, long followingId) {
+        if (!loaded)
+            return userRepository.isFollowing(followerId, followingId);
+        return Arrays.binarySearch(following(followerId), followingId) >= 0;
+    }
+
+    public void follow(long followerId, long followingId) {
+        Change change = new Change(followerId, followingId, true);
+        AfterCommit.run(() -> _record(change));
+    }
+
+    public void unfollow(long followerId, long followingId) {
+        Change change = new Change(followerId, followingId, false);
+        AfterCommit.run(() -> _record(change));
+    }
+
+    private synchronized void _record(Change change) {
+        if (replay != null)
+            replay.add(change);
+        _apply(change);
+    }
+
+    private void _apply(Change change) {
+        if (change.present) {
+            _add(following, change.followerId, change.followingId);
+            _add(followers, change.followingId, change.followerId);
+        } else {
+            _remove(following, change.followerId, change.followingId);
+            _remove(followers, change.followingId, change.followerId);
+        }
+    }
+
+    private Map<Long, long[]> _loadAdjacency(String sql) {
+        Map<Long, long[]> adjacency = new ConcurrentHashMap<>();
+        // Rows come grouped by the first column, each group becomes one array
+        long[] key = {-1};
+        long[][] buffer = {new long[16]};
+        int[] size = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, resultSet -> {
+            long from = resultSet.getLong(1);
+            if (from != key[0]) {
+                if (size[0] > 0)
+                    adjacency.put(key[0], Arrays.copyOf(buffer[0], size[0]));
+                key[0] = from;
+                size[0] = 0;
+            }
+            if (size[0] == buffer[0].length)
+                buffer[0] = Arrays.copyOf(buffer[0], 2 * size[0]);
+            buffer[0][size[0]++] = resultSet.getLong(2);
+        });
+        if (size[0] > 0)
+            adjacency.put(key[0], Arrays.copyOf(buffer[0], size[0]));
+        return adjacency;
+    }
+
+    private static void _add(Map<Long, long[]> adjacency, long from, long to) {
+        adjacency.compute(from, (id, ids) -> {
+            if (ids == null)
+                return new long[]{to};
+            int index = Arrays.binarySearch(ids, to);
+            if (index >= 0)
+                return ids;
+            index = -index - 1;
+            long[] updated = new long[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, index);
+            updated[index] = to;
+            System.arraycopy(ids, index, updated, index + 1, ids.length - index);
+            return updated;
+        });
+    }
+
+    private static void _remove(Map<Long, long[]> adjacency, long from, long to) {
+        adjacency.computeIfPresent(from, (id, ids) -> {
+            int index = Arrays.binarySearch(ids, to);
+            if (index < 0)
+                return ids;
+            if (ids.length == 1)
+                return null;
+            long[] updated = new long[ids.length - 1];
+            System.arraycopy(ids, 0, updated, 0, index);
+            System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+            return updated;
+        });
+    }
+
+    @RequiredArgsConstructor
+    private static class Change {
+        private final long followerId;
+        private final long followingId;
+        // true adds the edge, false removes it
+        private final boolean present;
+    }
+}
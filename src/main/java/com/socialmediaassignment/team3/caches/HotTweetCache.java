@@ -0,0 +1,100 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmediaassignment.team3.reads.ReadExecutor;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/*
+    Serialized JSON of single tweets and of their likes, reposts and replies, so a viral tweet is read and mapped
+    once rather than on every request. Concurrent misses on the same entry share one load, later callers wait for
+    the first one's future. Failed loads are not kept.
+
+    Writes to a tweet invalidate its entries once their transaction commits, see the callers of invalidate.
+    Replies and reposts embed the counters of each child, so a child whose counters move invalidates that list of
+    its parent as well. The tweets also embed their authors, and the likes are lists of users: changes to users
+    invalidate everything, only follower counts are left to the TTL.
+ */
+@Component
+@EnableConfigurationProperties(HotTweetProperties.class)
+public class HotTweetCache {
+    public enum Part { TWEET, LIKES, REPOSTS, REPLIES }
+
+    private final HotTweetProperties properties;
+    private final ReadExecutor readExecutor;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Key, byte[]> entries;
+
+    public HotTweetCache(HotTweetProperties properties, ReadExecutor readExecutor, ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.readExecutor = readExecutor;
+        this.objectMapper = objectMapper;
+        this.entries = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .<Key, byte[]>weigher((key, json) -> json.length)
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync(), "hot-tweets");
+    }
+
+    // The JSON of what 'load' returns, from the cache or from a read on the ReadExecutor
+    public CompletableFuture<byte[]> get(long tweetId, Part part, Supplier<?> load) {
+        if (!properties.isEnabled())
+            return readExecutor.read(() -> _serialize(load.get()));
+        // The load runs once the entry is in, outside the map: in blocking mode it would hold the map's lock
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> entry = entries.get(new Key(tweetId, part), (key, executor) -> created);
+        if (entry != created)
+            return entry;
+        try {
+            readExecutor.read(() -> _serialize(load.get())).whenComplete((json, e) -> {
+                if (e != null)
+                    created.completeExceptionally(e);
+                else
+                    created.complete(json);
+            });
+        } catch (RuntimeException e) {
+            // Callers waiting on the entry get the failure as well, and the failed entry is dropped
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created;
+    }
+
+    // An entry still loading is dropped as well, its callers get what it reads but later ones load again
+    public void invalidate(long tweetId, Part... parts) {
+        AfterCommit.run(() -> {
+            for (Part part : parts)
+                entries.synchronous().invalidate(new Key(tweetId, part));
+        });
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(() -> entries.synchronous().invalidateAll());
+    }
+
+    private byte[] _serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    @Value
+    private static class Key {
+        long tweetId;
+        Part part;
+    }
+}
@@ -0,0 +1,22 @@
+package com.socialmediaassignment.team3.caches;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tweeter.hot-tweets")
+public class HotTweetProperties {
+    // Off, every request goes to the database
+    private boolean enabled = true;
+
+    // Total size of the cached JSON, the least valuable entries are dropped beyond it
+    private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+    // Bounds how stale the embedded users' follower counts can get, writes to the tweet itself invalidate right away
+    private Duration ttl = Duration.ofSeconds(10);
+}
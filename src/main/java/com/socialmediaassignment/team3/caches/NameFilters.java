@@ -0,0 +1,101 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.socialmediaassignment.team3.repositories.HashtagRepository;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import com.socialmediaassignment.team3.utils.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+    Bloom filters over every username and hashtag label ever created, so existence checks can answer "no" without
+    a query and only possible matches go to the database. Users and hashtags are never removed (users are only
+    flagged deleted), so names are only ever added.
+
+    The filters are built once the application is ready, after any bulk load, and every check goes to the
+    database until then. Names are added after their transaction commits: a name committed before a rebuild
+    starts is in the rebuild's query, and one added after it has started is put into the new filter too.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NameFilters {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Room to grow before the false positive rate degrades; a rebuild (or a restart) resizes the filters
+    private static final long MIN_CAPACITY = 100_000;
+
+    private final UserRepository userRepository;
+    private final HashtagRepository hashtagRepository;
+    private final Names usernames = new Names();
+    private final Names hashtags = new Names();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        long userCount = usernames.rebuild(userRepository.count(), userRepository::streamUsernames);
+        long hashtagCount = hashtags.rebuild(hashtagRepository.count(), hashtagRepository::streamLabels);
+        log.info("Built name filters over {} usernames and {} hashtags in {} ms",
+                userCount, hashtagCount, System.currentTimeMillis() - started);
+    }
+
+    // False means no user, active or deleted, has this username
+    public boolean mightBeUsername(String username) {
+        return usernames.mightContain(username);
+    }
+
+    public boolean mightBeHashtag(String label) {
+        return hashtags.mightContain(label);
+    }
+
+    public void addUsername(String username) {
+        AfterCommit.run(() -> usernames.add(username));
+    }
+
+    public void addHashtags(Collection<String> labels) {
+        AfterCommit.run(() -> labels.forEach(hashtags::add));
+    }
+
+    private static class Names {
+        // Null until the first build completes, every name might exist until then
+        private volatile BloomFilter current;
+        private volatile BloomFilter building;
+
+        boolean mightContain(String name) {
+            BloomFilter filter = current;
+            return filter == null || name == null || filter.mightContain(name);
+        }
+
+        void add(String name) {
+            BloomFilter filter = current;
+            if (filter != null)
+                filter.put(name);
+            filter = building;
+            if (filter != null)
+                filter.put(name);
+        }
+
+        synchronized long rebuild(long expected, Supplier<Stream<String>> names) {
+            BloomFilter filter = new BloomFilter(Math.max(MIN_CAPACITY, 2 * expected), FALSE_POSITIVE_RATE);
+            building = filter;
+            long[] count = {0};
+            try (Stream<String> stream = names.get()) {
+                stream.forEach(name -> {
+                    filter.put(name);
+                    count[0]++;
+                });
+            }
+            current = filter;
+            building = null;
+            return count[0];
+        }
+    }
+}
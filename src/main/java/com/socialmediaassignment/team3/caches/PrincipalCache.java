@@ -0,0 +1,72 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Optional;
+
+/*
+    Remembers which credentials were recently verified against the database, so write endpoints can
+    authorize without a query. Only a salted SHA-256 of the password is kept. Entries expire after the
+    TTL and must be invalidated once a change to a user's password or deleted flag commits.
+ */
+@Component
+public class PrincipalCache {
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Principal> principals;
+
+    public PrincipalCache(@Value("${tweeter.principal-cache.maximum-size}") long maximumSize,
+                          @Value("${tweeter.principal-cache.ttl}") Duration ttl) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Id of the active user with these credentials, or empty if they have to be checked against the database
+    public Optional<Long> getUserId(Credential credential) {
+        if (credential == null || credential.getUsername() == null || credential.getPassword() == null)
+            return Optional.empty();
+        Principal principal = principals.getIfPresent(credential.getUsername());
+        if (principal == null || !MessageDigest.isEqual(principal.verifier, _hash(principal.salt, credential.getPassword())))
+            return Optional.empty();
+        return Optional.of(principal.userId);
+    }
+
+    public void put(Credential credential, Long userId) {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        principals.put(credential.getUsername(), new Principal(userId, salt, _hash(salt, credential.getPassword())));
+    }
+
+    public void invalidate(String username) {
+        if (username != null)
+            principals.invalidate(username);
+    }
+
+    private static byte[] _hash(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Principal {
+        private final Long userId;
+        private final byte[] salt;
+        private final byte[] verifier;
+    }
+}
@@ -0,0 +1,106 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Version watermarks behind the ETags of the resources clients poll: a user, a user's feed and the hashtag list.
+    Every change takes the next value of one clock, so the newest of several watermarks is a valid watermark for
+    anything built from them; a feed is the newest of its owner's and of everyone they follow.
+
+    Writers bump once their transaction commits and readers take the version before they query, so a response is
+    never newer than its ETag says: the worst case is a 200 where a 304 would have done. Versions only live in
+    memory, the epoch keeps ETags handed out by an earlier run from matching.
+
+    Users are the exception: a read that loaded the row before the commit can put it back into the second-level
+    cache after the eviction, to be served under the new version. So a changed user is bumped once more on the
+    first read after the 'user' region's expiry, when no cached copy can predate the change.
+ */
+@Component
+public class ResourceVersions {
+    // The 'user' region's expire-after-write in application.conf, plus slack
+    private static final long SETTLE_MILLIS = 65_000;
+
+    private final Clock time;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    // A user's profile, deleted flag, follow counters and who they follow
+    private final Map<Long, Long> users = new ConcurrentHashMap<>();
+    // An author's tweets and their counters
+    private final Map<Long, Long> tweets = new ConcurrentHashMap<>();
+    private final AtomicLong hashtags = new AtomicLong();
+    // Raised when changes can't be pinned down, covers every resource
+    private final AtomicLong everything = new AtomicLong();
+    // Changed users whose cached copies may predate the change, and when that stops being possible
+    private final Map<Long, Long> unsettled = new ConcurrentHashMap<>();
+
+    public ResourceVersions() {
+        this(Clock.systemUTC());
+    }
+
+    ResourceVersions(Clock time) {
+        this.time = time;
+    }
+
+    public String user(long userId) {
+        return _etag(Math.max(everything.get(), _user(userId)));
+    }
+
+    // The feed of 'ownerId', who follows the sorted 'following'
+    public String feed(long ownerId, long[] following) {
+        long version = Math.max(everything.get(), _author(ownerId));
+        for (long authorId : following)
+            version = Math.max(version, _author(authorId));
+        return _etag(version);
+    }
+
+    public String hashtags() {
+        return _etag(Math.max(everything.get(), hashtags.get()));
+    }
+
+    public void userChanged(long... userIds) {
+        AfterCommit.run(() -> {
+            long settles = time.millis() + SETTLE_MILLIS;
+            for (long userId : userIds) {
+                users.merge(userId, clock.incrementAndGet(), Math::max);
+                unsettled.merge(userId, settles, Math::max);
+            }
+        });
+    }
+
+    public void tweetsChanged(long... authorIds) {
+        AfterCommit.run(() -> {
+            for (long authorId : authorIds)
+                tweets.merge(authorId, clock.incrementAndGet(), Math::max);
+        });
+    }
+
+    public void hashtagsChanged() {
+        AfterCommit.run(() -> hashtags.accumulateAndGet(clock.incrementAndGet(), Math::max));
+    }
+
+    public void everythingChanged() {
+        AfterCommit.run(() -> everything.accumulateAndGet(clock.incrementAndGet(), Math::max));
+    }
+
+    // An author's tweets embed their profile and counters, so both count
+    private long _author(long userId) {
+        return Math.max(_user(userId), tweets.getOrDefault(userId, 0L));
+    }
+
+    private long _user(long userId) {
+        Long settles = unsettled.get(userId);
+        if (settles != null && time.millis() >= settles && unsettled.remove(userId, settles))
+            users.merge(userId, clock.incrementAndGet(), Math::max);
+        return users.getOrDefault(userId, 0L);
+    }
+
+    private String _etag(long version) {
+        return epoch + "-" + version;
+    }
+}
@@ -0,0 +1,183 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.socialmediaassignment.team3.exceptions.BadRequestException;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.*;
+
+/*
+    Counts hashtag uses over sliding windows in memory; nothing is read back from tweet_hashtag_mapping.
+    Labels are spread over lock stripes. Each stripe keeps one bucket of counts per minute for the last 24 hours,
+    plus running totals per window that expired buckets are subtracted from as the minutes go by.
+    The top tags of each window are recomputed at most once per REFRESH_MILLIS and served from that snapshot.
+    Counts start from zero whenever the application starts, and uses inside a transaction only count once it commits.
+ */
+@Component
+public class TrendingHashtags {
+    public static final int MAX_LIMIT = 100;
+    private static final int STRIPES = 16;
+    private static final int HISTORY_MINUTES = 24 * 60;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long REFRESH_MILLIS = 1_000;
+    private static final Comparator<Trend> RANKING = Comparator.comparingLong(Trend::getUses).reversed()
+            .thenComparing(Trend::getLabel);
+
+    @Getter
+    @AllArgsConstructor
+    public enum Window {
+        FIVE_MINUTES("5m", 5),
+        HOUR("1h", 60),
+        DAY("24h", HISTORY_MINUTES);
+
+        private final String label;
+        private final int minutes;
+
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equals(label))
+                    return window;
+            }
+            throw new BadRequestException("Invalid window '" + label + "', expected 5m, 1h or 24h");
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Trend {
+        private final String label;
+        private final long uses;
+    }
+
+    @AllArgsConstructor
+    private static class Snapshot {
+        private final long takenAt;
+        private final List<Trend> top;
+    }
+
+    private final Clock clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Snapshot[] snapshots = new Snapshot[Window.values().length];
+
+    public TrendingHashtags() {
+        this(Clock.systemUTC());
+    }
+
+    TrendingHashtags(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(_minute());
+    }
+
+    // One use per element, a label repeated across tweets is passed once per tweet
+    public void record(Collection<String> labels) {
+        AfterCommit.run(() -> {
+            long minute = _minute();
+            for (String label : labels)
+                stripes[Math.floorMod(label.hashCode(), STRIPES)].record(label, minute);
+        });
+    }
+
+    public List<Trend> top(Window window, int limit) {
+        Snapshot snapshot = _snapshot(window);
+        return snapshot.top.subList(0, Math.min(limit, snapshot.top.size()));
+    }
+
+    private Snapshot _snapshot(Window window) {
+        synchronized (snapshots) {
+            long now = clock.millis();
+            Snapshot snapshot = snapshots[window.ordinal()];
+            if (snapshot != null && now - snapshot.takenAt < REFRESH_MILLIS)
+                return snapshot;
+
+            // Min-heap of the best MAX_LIMIT so far, its head is the first to be pushed out
+            PriorityQueue<Trend> heap = new PriorityQueue<>(MAX_LIMIT + 1, RANKING.reversed());
+            long minute = now / MINUTE_MILLIS;
+            for (Stripe stripe : stripes)
+                stripe.collect(window, minute, heap);
+            List<Trend> top = new ArrayList<>(heap);
+            top.sort(RANKING);
+
+            snapshot = new Snapshot(now, Collections.unmodifiableList(top));
+            snapshots[window.ordinal()] = snapshot;
+            return snapshot;
+        }
+    }
+
+    private long _minute() {
+        return clock.millis() / MINUTE_MILLIS;
+    }
+
+    private static final class Stripe {
+        private final Map<String, Integer>[] buckets;
+        private final long[] bucketMinutes = new long[HISTORY_MINUTES];
+        private final List<Map<String, Long>> totals = new ArrayList<>();
+        private long advancedTo;
+
+        @SuppressWarnings("unchecked")
+        private Stripe(long minute) {
+            buckets = new Map[HISTORY_MINUTES];
+            Arrays.fill(bucketMinutes, -1);
+            for (int i = 0; i < Window.values().length; i++)
+                totals.add(new HashMap<>());
+            advancedTo = minute;
+        }
+
+        private synchronized void record(String label, long minute) {
+            // A caller that read the clock just before another one moved the stripe on counts in the current minute
+            minute = Math.max(minute, advancedTo);
+            _advance(minute);
+            int slot = _slot(minute);
+            if (buckets[slot] == null) {
+                buckets[slot] = new HashMap<>();
+                bucketMinutes[slot] = minute;
+            }
+            buckets[slot].merge(label, 1, Integer::sum);
+            for (Map<String, Long> total : totals)
+                total.merge(label, 1L, Long::sum);
+        }
+
+        private synchronized void collect(Window window, long minute, PriorityQueue<Trend> heap) {
+            _advance(minute);
+            for (Map.Entry<String, Long> entry : totals.get(window.ordinal()).entrySet()) {
+                heap.offer(new Trend(entry.getKey(), entry.getValue()));
+                if (heap.size() > MAX_LIMIT)
+                    heap.poll();
+            }
+        }
+
+        // Moves the windows forward to the given minute, subtracting the buckets that fell out of each of them
+        private void _advance(long minute) {
+            if (minute <= advancedTo)
+                return;
+            if (minute - advancedTo > HISTORY_MINUTES) {
+                Arrays.fill(buckets, null);
+                Arrays.fill(bucketMinutes, -1);
+                totals.forEach(Map::clear);
+                advancedTo = minute;
+                return;
+            }
+            for (long m = advancedTo + 1; m <= minute; m++) {
+                for (Window window : Window.values()) {
+                    int expired = _slot(m - window.minutes);
+                    if (buckets[expired] == null || bucketMinutes[expired] != m - window.minutes)
+                        continue;
+                    Map<String, Long> total = totals.get(window.ordinal());
+                    buckets[expired].forEach((label, uses) ->
+                            total.computeIfPresent(label, (key, sum) -> sum > uses ? sum - uses : null));
+                }
+                // The 24h window has just let go of the bucket this minute reuses
+                buckets[_slot(m)] = null;
+                bucketMinutes[_slot(m)] = -1;
+            }
+            advancedTo = minute;
+        }
+
+        private static int _slot(long minute) {
+            return (int) Math.floorMod(minute, (long) HISTORY_MINUTES);
+        }
+    }
+}
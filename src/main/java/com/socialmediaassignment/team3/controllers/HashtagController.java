@@ -1,31 +1,61 @@
 package com.socialmediaassignment.team3.controllers;
 
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
 import com.socialmediaassignment.team3.dtos.HashtagResponseDto;
+import com.socialmediaassignment.team3.dtos.TrendingHashtagResponseDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.mappers.HashtagMapper;
+import com.socialmediaassignment.team3.metrics.QueryBudget;
 import com.socialmediaassignment.team3.repositories.HashtagRepository;
+import com.socialmediaassignment.team3.reads.ReadExecutor;
 import com.socialmediaassignment.team3.services.HashtagService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/tags")
 public class HashtagController {
     private final HashtagService hashtagService;
+    private final ReadExecutor readExecutor;
 
+    // Sends an ETag and answers a matching If-None-Match with 304, without reading the hashtags
     @GetMapping
-    public List<HashtagResponseDto> getAllHashtags() {
-        return hashtagService.getAllHashtags();
+    @QueryBudget(2)
+    public CompletableFuture<List<HashtagResponseDto>> getAllHashtags(WebRequest request) {
+        if (request.checkNotModified(hashtagService.getAllHashtagsVersion()))
+            return null;
+        return readExecutor.read(() -> hashtagService.getAllHashtags());
+    }
+
+    @GetMapping(params = "stream=true")
+    @QueryBudget(2)
+    public ResponseEntity<StreamingResponseBody> streamAllHashtags() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(hashtagService::streamAllHashtags);
+    }
+
+    // Most used tags over the last 5m, 1h or 24h, counted in memory since the application started
+    @GetMapping("/trending")
+    @QueryBudget(1)
+    public List<TrendingHashtagResponseDto> getTrendingHashtags(@RequestParam(defaultValue = "1h") String window,
+                                                                @RequestParam(required = false) Integer limit) {
+        return hashtagService.getTrendingHashtags(window, limit);
     }
 
     @GetMapping("/{label}")
-    public List<TweetResponseDto> getTweetByTag(@PathVariable String label) {
-        return hashtagService.getTweetByTag(label);
+    @QueryBudget(3)
+    public CompletableFuture<List<TweetResponseDto>> getTweetByTag(@PathVariable String label, CursorRequestDto page) {
+        return readExecutor.read(() -> hashtagService.getTweetByTag(label, page));
     }
 }
@@ -1,86 +1,163 @@
 package com.socialmediaassignment.team3.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.caches.HotTweetCache;
 import com.socialmediaassignment.team3.dtos.ContextResponseDto;
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetBatchResultDto;
 import com.socialmediaassignment.team3.dtos.TweetRequestDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import com.socialmediaassignment.team3.exceptions.BadRequestException;
 import com.socialmediaassignment.team3.mappers.TweetMapper;
+import com.socialmediaassignment.team3.metrics.QueryBudget;
 import com.socialmediaassignment.team3.repositories.TweetRepository;
+import com.socialmediaassignment.team3.reads.ReadExecutor;
 import com.socialmediaassignment.team3.services.TweetService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/tweets")
 public class TweetController {
     private final TweetService tweetService;
+    private final ReadExecutor readExecutor;
+    private final HotTweetCache hotTweets;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<TweetResponseDto> getAllTweets() {
-        return tweetService.getActiveTweets();
+    @QueryBudget(2)
+    public CompletableFuture<List<TweetResponseDto>> getAllTweets(CursorRequestDto page) {
+        return readExecutor.read(() -> tweetService.getActiveTweets(page));
+    }
+
+    // ?stream=true writes every active tweet, in no particular order, as the rows are read
+    @GetMapping(params = "stream=true")
+    @QueryBudget(2)
+    public ResponseEntity<StreamingResponseBody> streamAllTweets() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(tweetService::streamActiveTweets);
     }
 
     @GetMapping("/{id}")
-    public TweetResponseDto getTweetById(@PathVariable Long id) {
-        return tweetService.getTweetById(id);
+    @QueryBudget(2)
+    public CompletableFuture<ResponseEntity<byte[]>> getTweetById(@PathVariable Long id) {
+        return _json(hotTweets.get(id, HotTweetCache.Part.TWEET, () -> tweetService.getTweetById(id)));
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
+    @QueryBudget(12)
     public TweetResponseDto createTweet(@RequestBody TweetRequestDto tweetRequestDto) {
         return tweetService.createTweet(tweetRequestDto);
     }
 
+    /*
+        Many simple tweets by one author in one transaction, either as a JSON array of POST /tweets bodies or as
+        NDJSON with one such body per line. Answers with one result per tweet, in order.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @QueryBudget(8)
+    public List<TweetBatchResultDto> createTweets(@RequestBody List<TweetRequestDto> tweetRequestDtos) {
+        return tweetService.createTweets(tweetRequestDtos);
+    }
+
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    @QueryBudget(8)
+    public List<TweetBatchResultDto> createTweetsFromLines(InputStream body) throws IOException {
+        List<TweetRequestDto> tweetRequestDtos = new ArrayList<>();
+        try (MappingIterator<TweetRequestDto> lines = objectMapper.readerFor(TweetRequestDto.class).readValues(body)) {
+            // One past the limit is enough for the service to reject the batch
+            while (lines.hasNextValue() && tweetRequestDtos.size() <= TweetService.MAX_BATCH_SIZE)
+                tweetRequestDtos.add(lines.nextValue());
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException(e.getLocation() == null ? "Not a stream of tweets"
+                    : "Line " + e.getLocation().getLineNr() + " is not a tweet");
+        }
+        return tweetService.createTweets(tweetRequestDtos);
+    }
+
     @PostMapping("/{id}/like")
+    @QueryBudget(7)
     public void likeTweetById(@PathVariable Long id, @RequestBody Credential credential) {
         tweetService.likeTweetById(id, credential);
     }
 
+    @PostMapping("/{id}/unlike")
+    @QueryBudget(6)
+    public void unlikeTweetById(@PathVariable Long id, @RequestBody Credential credential) {
+        tweetService.unlikeTweetById(id, credential);
+    }
+
     // different
     @GetMapping("/{id}/likes")
-    public List<UserResponseDto> getLikeForTweet(@PathVariable Long id) {
-        return tweetService.getLikeForTweet(id);
+    @QueryBudget(4)
+    public CompletableFuture<ResponseEntity<byte[]>> getLikeForTweet(@PathVariable Long id) {
+        return _json(hotTweets.get(id, HotTweetCache.Part.LIKES, () -> tweetService.getLikeForTweet(id)));
     }
 
+    // Optional caps: 'depth' levels of replies in each direction, 'limit' replies in 'after'
     @GetMapping("/{id}/context")
-    public ContextResponseDto getContextForTweet(@PathVariable Long id) {
-        return tweetService.getContextForTweet(id);
+    @QueryBudget(6)
+    public CompletableFuture<ContextResponseDto> getContextForTweet(@PathVariable Long id,
+                                                                    @RequestParam(required = false) Integer depth,
+                                                                    @RequestParam(required = false) Integer limit) {
+        return readExecutor.read(() -> tweetService.getContextForTweet(id, depth, limit));
     }
 
     @DeleteMapping("/{id}")
+    @QueryBudget(5)
     public TweetResponseDto deleteTweetById(@PathVariable Long id, @RequestBody Credential credential) {
         return tweetService.deleteTweetById(id, credential);
     }
 
     @PostMapping("/{id}/repost")
     @ResponseStatus(HttpStatus.CREATED)
+    @QueryBudget(7)
     public TweetResponseDto repostTweetById(@PathVariable Long id, @RequestBody Credential credential) {
         return tweetService.repostTweetById(id, credential);
     }
 
     @GetMapping("/{id}/reposts")
-    public List<TweetResponseDto> getRepostOfTweetById(@PathVariable Long id) {
-        return tweetService.getRepostOfTweetById(id);
+    @QueryBudget(4)
+    public CompletableFuture<ResponseEntity<byte[]>> getRepostOfTweetById(@PathVariable Long id) {
+        return _json(hotTweets.get(id, HotTweetCache.Part.REPOSTS, () -> tweetService.getRepostOfTweetById(id)));
     }
 
     @PostMapping("/{id}/reply")
     @ResponseStatus(HttpStatus.CREATED)
+    @QueryBudget(12)
     public TweetResponseDto replyTweetById(@PathVariable Long id, @RequestBody TweetRequestDto tweetRequestDto) {
         return tweetService.replyTweetById(id, tweetRequestDto);
     }
 
     @GetMapping("/{id}/replies")
-    public List<TweetResponseDto> getReplyToTweetById(@PathVariable Long id) {
-        return tweetService.getRepliesToTweetById(id);
+    @QueryBudget(4)
+    public CompletableFuture<ResponseEntity<byte[]>> getReplyToTweetById(@PathVariable Long id) {
+        return _json(hotTweets.get(id, HotTweetCache.Part.REPLIES, () -> tweetService.getRepliesToTweetById(id)));
     }
 
     @GetMapping("/{id}/mentions")
-    public List<UserResponseDto> getMentionInTweetById(@PathVariable Long id) {
-        return tweetService.getMentionInTweetById(id);
+    @QueryBudget(4)
+    public CompletableFuture<List<UserResponseDto>> getMentionInTweetById(@PathVariable Long id) {
+        return readExecutor.read(() -> tweetService.getMentionInTweetById(id));
+    }
+
+    // Cached responses are already serialized
+    private static CompletableFuture<ResponseEntity<byte[]>> _json(CompletableFuture<byte[]> json) {
+        return json.thenApply(body -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body));
     }
 }
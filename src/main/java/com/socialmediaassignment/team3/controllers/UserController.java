@@ -1,20 +1,29 @@
 package com.socialmediaassignment.team3.controllers;
 
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.dtos.UserRequestDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import com.socialmediaassignment.team3.metrics.QueryBudget;
+import com.socialmediaassignment.team3.reads.ReadExecutor;
 import com.socialmediaassignment.team3.services.TweetService;
 import com.socialmediaassignment.team3.services.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -22,39 +31,57 @@ import java.util.List;
 public class UserController {
     private final UserService userService;
     private final TweetService tweetService;
+    private final ReadExecutor readExecutor;
 
     @GetMapping
-    public List<UserResponseDto> getAllUser() {
-        return userService.getActiveUsers();
+    @QueryBudget(2)
+    public CompletableFuture<List<UserResponseDto>> getAllUser() {
+        return readExecutor.read(() -> userService.getActiveUsers());
+    }
+
+    @GetMapping(params = "stream=true")
+    @QueryBudget(2)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(userService::streamActiveUsers);
     }
 
     @PostMapping
     @ResponseStatus(code = HttpStatus.CREATED)
+    // A deleted user coming back also moves the counters of their likes and follows
+    @QueryBudget(5)
     public UserResponseDto createUser(@RequestBody UserRequestDto userRequestDto) {
         return userService.createUser(userRequestDto);
     }
 
+    // Sends an ETag and answers a matching If-None-Match with 304, see ResourceVersions
     @GetMapping("/@{username}")
-    public UserResponseDto getUserByUsername(@PathVariable String username) {
-        return userService.getUserByUsername(username);
+    @QueryBudget(2)
+    public CompletableFuture<UserResponseDto> getUserByUsername(@PathVariable String username, WebRequest request) {
+        if (_notModified(request, userService.getUserVersion(username)))
+            return null;
+        return readExecutor.read(() -> userService.getUserByUsername(username));
     }
 
     @PatchMapping("/@{username}")
+    @QueryBudget(3)
     public UserResponseDto updateUser(@PathVariable String username, @RequestBody UserRequestDto userRequestDto) {
         return userService.updateUser(username, userRequestDto);
     }
 
     @DeleteMapping("/@{username}")
+    @QueryBudget(5)
     public UserResponseDto deleteUser(@PathVariable String username, @RequestBody Credential credential) {
         return userService.deleteUser(username, credential);
     }
 
     @PostMapping("/@{username}/follow")
+    @QueryBudget(5)
     public void followUser(@PathVariable String username, @RequestBody Credential credential) {
         userService.followUser(username, credential);
     }
 
     @PostMapping("/@{username}/unfollow")
+    @QueryBudget(5)
     public void unFollowUser(@PathVariable String username, @RequestBody Credential credential) {
         userService.unFollowUser(username, credential);
     }
@@ -64,8 +91,9 @@ public class UserController {
         Retrieves the followers of the user with the given username.
      */
     @GetMapping("/@{username}/followers")
-    public List<UserResponseDto> getFollowers(@PathVariable String username) {
-        return userService.getFollowers(username);
+    @QueryBudget(3)
+    public CompletableFuture<List<UserResponseDto>> getFollowers(@PathVariable String username) {
+        return readExecutor.read(() -> userService.getFollowers(username));
     }
 
     /*
@@ -73,35 +101,51 @@ public class UserController {
         Retrieves the users followed by the user with the given username.
     */
     @GetMapping("/@{username}/following")
-    public List<UserResponseDto> getFollowedUsers(@PathVariable String username) {
-        return userService.getFollowedUsers(username);
+    @QueryBudget(3)
+    public CompletableFuture<List<UserResponseDto>> getFollowedUsers(@PathVariable String username) {
+        return readExecutor.read(() -> userService.getFollowedUsers(username));
     }
 
     /*
         GET users/@{username}/tweets
         Retrieves all (non-deleted) tweets authored by the user with the given username.
+        Paged newest first with ?limit=&before=&after= (see CursorRequestDto).
     */
     @GetMapping("/@{username}/tweets")
-    public List<TweetResponseDto> getUserTweets(@PathVariable String username) {
-        return tweetService.getUserTweets(username);
+    @QueryBudget(3)
+    public CompletableFuture<List<TweetResponseDto>> getUserTweets(@PathVariable String username, CursorRequestDto page) {
+        return readExecutor.read(() -> tweetService.getUserTweets(username, page));
     }
 
     /*
         GET users/@{username}/mentions
         Retrieves all (non-deleted) tweets in which the user with the given username is mentioned.
+        Paged newest first with ?limit=&before=&after= (see CursorRequestDto).
     */
     @GetMapping("/@{username}/mentions")
-    public List<TweetResponseDto> getTweetsByMention(@PathVariable String username) {
-        return tweetService.getTweetsByMention(username);
+    @QueryBudget(3)
+    public CompletableFuture<List<TweetResponseDto>> getTweetsByMention(@PathVariable String username, CursorRequestDto page) {
+        return readExecutor.read(() -> tweetService.getTweetsByMention(username, page));
     }
 
     /*
         GET users/@{username}/feed
         Retrieves all (non-deleted) tweets authored by the user with the given username,
         as well as all (non-deleted) tweets authored by users the given user is following.
+        Paged newest first with ?limit=&before=&after= (see CursorRequestDto).
+        Sends an ETag, a matching If-None-Match is answered with 304 before the feed is queried.
      */
     @GetMapping("/@{username}/feed")
-    public List<TweetResponseDto> getUserFeed(@PathVariable String username) {
-        return tweetService.getUserFeed(username);
+    @QueryBudget(3)
+    public CompletableFuture<List<TweetResponseDto>> getUserFeed(@PathVariable String username, CursorRequestDto page,
+                                                                 WebRequest request) {
+        if (_notModified(request, tweetService.getUserFeedVersion(username)))
+            return null;
+        return readExecutor.read(() -> tweetService.getUserFeed(username, page));
+    }
+
+    // Users that don't exist have no ETag, the handler answers with its usual error
+    private static boolean _notModified(WebRequest request, Optional<String> etag) {
+        return etag.isPresent() && request.checkNotModified(etag.get());
     }
 }
@@ -1,5 +1,6 @@
 package com.socialmediaassignment.team3.controllers;
 
+import com.socialmediaassignment.team3.metrics.QueryBudget;
 import com.socialmediaassignment.team3.services.ValidateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,18 +16,21 @@ public class ValidateController {
 
     // Checks whether a given username exists.
     @GetMapping("/username/exists/@{username}")
+    @QueryBudget(2)
     public boolean existUsername(@PathVariable String username) {
         return validateService.existUsername(username);
     }
 
     // Checks whether a given username exists.
     @GetMapping("/username/available/@{username}")
+    @QueryBudget(1)
     public boolean availableUsername(@PathVariable String username) {
         return !validateService.existUsername(username);
     }
 
     // Checks whether a given hashtag exists.
     @GetMapping("/tag/exists/{label}")
+    @QueryBudget(2)
     public Boolean existHashtag(@PathVariable String label) {
         return validateService.existHashtag(label);
     }
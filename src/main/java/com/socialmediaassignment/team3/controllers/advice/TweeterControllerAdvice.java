@@ -3,6 +3,7 @@ package com.socialmediaassignment.team3.controllers.advice;
 import com.socialmediaassignment.team3.dtos.ErrorDto;
 import com.socialmediaassignment.team3.exceptions.BadRequestException;
 import com.socialmediaassignment.team3.exceptions.NotFoundException;
+import com.socialmediaassignment.team3.exceptions.ServiceUnavailableException;
 import com.socialmediaassignment.team3.exceptions.UnauthorizedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
@@ -30,4 +31,10 @@ public class TweeterControllerAdvice {
     public ErrorDto handleBadRequestException(HttpServletRequest request, NotFoundException notFoundException) {
         return new ErrorDto(notFoundException.getMessage());
     }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ErrorDto handleServiceUnavailableException(HttpServletRequest request, ServiceUnavailableException serviceUnavailableException) {
+        return new ErrorDto(serviceUnavailableException.getMessage());
+    }
 }
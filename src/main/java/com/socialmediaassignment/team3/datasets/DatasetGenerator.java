@@ -0,0 +1,233 @@
+package com.socialmediaassignment.team3.datasets;
+
+import com.socialmediaassignment.team3.repositories.TimelineRepository;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/*
+    Bulk loads a synthetic dataset on startup when the 'dataset' profile is active, see application-dataset.properties.
+    Rows are written with batched JDBC inserts using ids reserved from hibernate_sequence. Timelines and counters
+    are then rebuilt in SQL. The same seed and properties always produce the same dataset.
+ */
+@Slf4j
+@Component
+@Profile("dataset")
+@EnableConfigurationProperties(DatasetProperties.class)
+@RequiredArgsConstructor
+public class DatasetGenerator implements CommandLineRunner {
+    private static final String INSERT_USER = "INSERT INTO user_table (id, username, password, email, created_on, " +
+            "deleted, follower_count, following_count) VALUES (?, ?, ?, ?, ?, false, 0, 0)";
+    private static final String INSERT_FOLLOW = "INSERT INTO follower_following_mapping (follower_id, following_id) VALUES (?, ?)";
+    private static final String INSERT_HASHTAG = "INSERT INTO hashtag (id, label, created_on, last_used) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_TWEET = "INSERT INTO tweet (id, author_id, reply_to_id, repost_id, content, created_on, " +
+            "deleted, like_count, repost_count, reply_count) VALUES (?, ?, ?, ?, ?, ?, false, 0, 0, 0)";
+    private static final String INSERT_MENTION = "INSERT INTO mention_mapping (tweet_id, user_id, posted) VALUES (?, ?, ?)";
+    private static final String INSERT_TAGGING = "INSERT INTO tweet_hashtag_mapping (tweet_id, hashtag_id) VALUES (?, ?)";
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final DatasetProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TimelineRepository timelineRepository;
+    private final TweetRepository tweetRepository;
+    private final UserRepository userRepository;
+
+    @Override
+    public void run(String... args) {
+        if (userRepository.count() > 0) {
+            log.warn("Skipping dataset generation, the database already has users");
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Random random = new Random(properties.getSeed());
+        ZipfDistribution popularity = new ZipfDistribution(properties.getUsers(), properties.getPopularityExponent());
+        long userBase = _reserveIds(properties.getUsers() + properties.getHashtags() + properties.getTweets());
+        long hashtagBase = userBase + properties.getUsers();
+        long tweetBase = hashtagBase + properties.getHashtags();
+        long end = System.currentTimeMillis();
+        long start = end - properties.getDays() * DAY_MILLIS;
+
+        _insertUsers(random, userBase, start);
+        long follows = _insertFollows(random, popularity, userBase);
+        long[] hashtagDates = _insertHashtags(hashtagBase, start);
+        _insertTweets(random, popularity, userBase, hashtagBase, tweetBase, start, end, hashtagDates);
+        _updateHashtagDates(hashtagBase, hashtagDates);
+        log.info("Inserted the dataset in {} ms, rebuilding timelines and counters", System.currentTimeMillis() - started);
+
+        int timelineEntries = properties.isRebuildTimelines() ? timelineRepository.rebuildAll() : 0;
+        tweetRepository.reconcileCounters();
+        userRepository.reconcileCounters();
+        log.info("Generated {} users, {} follows, {} tweets and {} timeline entries in {} ms",
+                properties.getUsers(), follows, properties.getTweets(), timelineEntries, System.currentTimeMillis() - started);
+    }
+
+    private long _reserveIds(long count) {
+        Long first = jdbcTemplate.queryForObject("SELECT nextval('hibernate_sequence')", Long.class);
+        jdbcTemplate.queryForObject("SELECT setval('hibernate_sequence', ?)", Long.class, first + count);
+        return first;
+    }
+
+    private void _insertUsers(Random random, long userBase, long start) {
+        Batch users = new Batch(INSERT_USER);
+        for (int i = 0; i < properties.getUsers(); i++) {
+            users.add(userBase + i, _username(i), properties.getPassword(), _username(i) + "@example.com",
+                    new Timestamp(start - (long) (random.nextDouble() * 365 * DAY_MILLIS)));
+        }
+        users.flush();
+    }
+
+    private long _insertFollows(Random random, ZipfDistribution popularity, long userBase) {
+        int users = properties.getUsers();
+        double exponent = properties.getFollowExponent();
+        double minimum = properties.getMeanFollows() * (exponent - 2) / (exponent - 1);
+        Batch follows = new Batch(INSERT_FOLLOW);
+        Set<Integer> following = new HashSet<>();
+        for (int i = 0; i < users; i++) {
+            long degree = Math.min(users - 1, (long) (minimum * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1))));
+            following.clear();
+            // Popular users are drawn over and over, so give up on a user after a bounded number of misses
+            for (long attempts = 0; following.size() < degree && attempts < degree * 10; attempts++) {
+                int other = popularity.sample(random);
+                if (other != i && following.add(other))
+                    follows.add(userBase + i, userBase + other);
+            }
+        }
+        follows.flush();
+        return follows.total;
+    }
+
+    private long[] _insertHashtags(long hashtagBase, long start) {
+        Batch hashtags = new Batch(INSERT_HASHTAG);
+        Timestamp placeholder = new Timestamp(start);
+        for (int i = 0; i < properties.getHashtags(); i++)
+            hashtags.add(hashtagBase + i, _label(i), placeholder, placeholder);
+        hashtags.flush();
+        // First and last use of each hashtag, filled in while generating tweets
+        long[] dates = new long[properties.getHashtags() * 2];
+        Arrays.fill(dates, -1);
+        return dates;
+    }
+
+    private void _insertTweets(Random random, ZipfDistribution popularity, long userBase, long hashtagBase,
+                               long tweetBase, long start, long end, long[] hashtagDates) {
+        ZipfDistribution activity = new ZipfDistribution(properties.getUsers(), properties.getActivityExponent());
+        ZipfDistribution hashtagUse = new ZipfDistribution(properties.getHashtags(), properties.getHashtagExponent());
+        double step = (double) (end - start) / Math.max(1, properties.getTweets());
+        Batch tweets = new Batch(INSERT_TWEET);
+        Batch mentions = new Batch(INSERT_MENTION, tweets);
+        Batch taggings = new Batch(INSERT_TAGGING, tweets);
+        Set<Integer> mentioned = new HashSet<>();
+        Set<Integer> tagged = new HashSet<>();
+
+        for (long i = 0; i < properties.getTweets(); i++) {
+            long id = tweetBase + i;
+            long posted = start + (long) (i * step);
+            int author = activity.sample(random);
+            double kind = random.nextDouble();
+
+            if (i > 0 && kind < properties.getRepostRatio()) {
+                tweets.add(id, userBase + author, null, _earlierTweet(random, tweetBase, i), null, new Timestamp(posted));
+            } else {
+                Long replyTo = i > 0 && kind < properties.getRepostRatio() + properties.getReplyRatio()
+                        ? _earlierTweet(random, tweetBase, i) : null;
+                StringBuilder content = new StringBuilder("Generated tweet ").append(i);
+
+                mentioned.clear();
+                if (random.nextDouble() < properties.getMentionRatio()) {
+                    for (int m = random.nextInt(3); m >= 0; m--)
+                        mentioned.add(popularity.sample(random));
+                }
+                for (int user : mentioned)
+                    content.append(" @").append(_username(user));
+
+                tagged.clear();
+                for (int t = random.nextInt(properties.getMaxHashtagsPerTweet() + 1); t > 0; t--)
+                    tagged.add(hashtagUse.sample(random));
+                for (int hashtag : tagged) {
+                    content.append(" #").append(_label(hashtag));
+                    if (hashtagDates[2 * hashtag] < 0)
+                        hashtagDates[2 * hashtag] = posted;
+                    hashtagDates[2 * hashtag + 1] = posted;
+                }
+
+                tweets.add(id, userBase + author, replyTo, null, content.toString(), new Timestamp(posted));
+                for (int user : mentioned)
+                    mentions.add(id, userBase + user, new Timestamp(posted));
+                for (int hashtag : tagged)
+                    taggings.add(id, hashtagBase + hashtag);
+            }
+
+            if ((i + 1) % 1_000_000 == 0)
+                log.info("Generated {} of {} tweets", i + 1, properties.getTweets());
+        }
+        tweets.flush();
+        mentions.flush();
+        taggings.flush();
+    }
+
+    private void _updateHashtagDates(long hashtagBase, long[] hashtagDates) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < properties.getHashtags(); i++) {
+            if (hashtagDates[2 * i] >= 0)
+                rows.add(new Object[]{new Timestamp(hashtagDates[2 * i]), new Timestamp(hashtagDates[2 * i + 1]), hashtagBase + i});
+        }
+        jdbcTemplate.batchUpdate("UPDATE hashtag SET created_on = ?, last_used = ? WHERE id = ?", rows);
+    }
+
+    private long _earlierTweet(Random random, long tweetBase, long index) {
+        return tweetBase + index - 1 - random.nextInt((int) Math.min(index, properties.getReplyWindow()));
+    }
+
+    private static String _username(int index) {
+        return "user-" + index;
+    }
+
+    private static String _label(int index) {
+        return "tag-" + index;
+    }
+
+    /*
+        Collects rows for one statement and sends them in batches of the configured size. A batch whose rows
+        reference another batch's rows flushes that one first, so foreign keys are always satisfied.
+     */
+    private class Batch {
+        private final String sql;
+        private final Batch parent;
+        private final List<Object[]> rows = new ArrayList<>();
+        private long total;
+
+        private Batch(String sql) {
+            this(sql, null);
+        }
+
+        private Batch(String sql, Batch parent) {
+            this.sql = sql;
+            this.parent = parent;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= properties.getBatchSize())
+                flush();
+        }
+
+        private void flush() {
+            if (parent != null)
+                parent.flush();
+            if (rows.isEmpty())
+                return;
+            jdbcTemplate.batchUpdate(sql, rows);
+            total += rows.size();
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.socialmediaassignment.team3.datasets;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tweeter.dataset")
+public class DatasetProperties {
+    private int users = 10_000;
+    private long tweets = 200_000;
+    private int hashtags = 2_000;
+
+    // Follows per user are Pareto distributed with this mean and exponent, which must be above 2
+    private double meanFollows = 50;
+    private double followExponent = 2.5;
+
+    // Zipf exponents for how often a user is followed or mentioned, and for how often a hashtag is used
+    private double popularityExponent = 1.0;
+    private double hashtagExponent = 1.1;
+
+    /*
+        Zipf exponent for how often a user posts, 0 for uniform. Popular users are also the most active ones,
+        so raising it multiplies the fan-out and the size of the rebuilt timelines.
+     */
+    private double activityExponent = 0;
+
+    private double replyRatio = 0.3;
+    private double repostRatio = 0.1;
+    private double mentionRatio = 0.2;
+    private int maxHashtagsPerTweet = 3;
+
+    // Replies and reposts point at one of this many preceding tweets, which keeps reply trees together in time
+    private int replyWindow = 10_000;
+
+    // Every tweet lands in its author's and each follower's timeline, by far the slowest step for large datasets
+    private boolean rebuildTimelines = true;
+
+    private int days = 30;
+    private long seed = 42;
+    private int batchSize = 5_000;
+    private String password = "password";
+}
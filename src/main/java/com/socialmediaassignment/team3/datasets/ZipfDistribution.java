@@ -0,0 +1,25 @@
+package com.socialmediaassignment.team3.datasets;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Ranks 0..size-1 where rank k is drawn with probability proportional to 1 / (k + 1)^exponent
+final class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int size, double exponent) {
+        cumulative = new double[size];
+        double total = 0;
+        for (int k = 0; k < size; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < size; k++)
+            cumulative[k] /= total;
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
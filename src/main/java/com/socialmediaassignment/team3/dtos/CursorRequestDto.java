@@ -0,0 +1,44 @@
+package com.socialmediaassignment.team3.dtos;
+
+import com.socialmediaassignment.team3.exceptions.BadRequestException;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/*
+    Query parameters shared by the tweet list endpoints: ?limit=&before=&after=
+    'before' pages towards older tweets and 'after' towards newer ones; both take a TweetCursor.
+ */
+@NoArgsConstructor
+@Data
+public class CursorRequestDto {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private Integer limit;
+    private String before;
+    private String after;
+
+    public boolean isAfter() {
+        if (before != null && after != null)
+            throw new BadRequestException("Only one of 'before' and 'after' can be given");
+        return after != null;
+    }
+
+    public TweetCursor getBeforeCursor() {
+        return before == null ? TweetCursor.LATEST : TweetCursor.parse(before);
+    }
+
+    public TweetCursor getAfterCursor() {
+        return TweetCursor.parse(after);
+    }
+
+    public Pageable toPageable() {
+        if (limit == null)
+            return PageRequest.of(0, DEFAULT_LIMIT);
+        if (limit < 1)
+            throw new BadRequestException("Field 'limit' must be positive");
+        return PageRequest.of(0, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,11 @@
+package com.socialmediaassignment.team3.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Data
+public class TrendingHashtagResponseDto {
+    private String label;
+    private Long uses;
+}
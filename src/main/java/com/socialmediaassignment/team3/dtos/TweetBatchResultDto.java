@@ -0,0 +1,15 @@
+package com.socialmediaassignment.team3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One per tweet of a batch, in request order: the new tweet's id, or why it was not created
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TweetBatchResultDto {
+    private int index;
+    private Long id;
+    private String error;
+}
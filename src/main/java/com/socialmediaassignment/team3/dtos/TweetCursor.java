@@ -0,0 +1,43 @@
+package com.socialmediaassignment.team3.dtos;
+
+import com.socialmediaassignment.team3.exceptions.BadRequestException;
+import lombok.Value;
+
+import java.util.Date;
+
+/*
+    Position of a tweet in a reverse-chronological list, written as "{posted millis}_{id}".
+    The id breaks ties between tweets posted in the same millisecond. Immutable, so LATEST can be shared.
+ */
+@Value
+public class TweetCursor {
+    // Sorts after every real tweet, so "before LATEST" is the first page
+    public static final TweetCursor LATEST = new TweetCursor(253402300799999L, Long.MAX_VALUE);
+
+    // Millis rather than a Date, which callers could change
+    long postedMillis;
+    Long id;
+
+    public Date getPosted() {
+        return new Date(postedMillis);
+    }
+
+    public static TweetCursor parse(String value) {
+        int separator = value.indexOf('_');
+        if (separator < 0)
+            throw new BadRequestException("Invalid cursor '" + value + "'");
+        try {
+            return new TweetCursor(
+                    Long.parseLong(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1))
+            );
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor '" + value + "'");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return postedMillis + "_" + id;
+    }
+}
@@ -0,0 +1,12 @@
+package com.socialmediaassignment.team3.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class TweetReferenceDto {
+    private Long id;
+}
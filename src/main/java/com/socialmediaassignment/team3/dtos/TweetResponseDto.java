@@ -1,15 +1,10 @@
 package com.socialmediaassignment.team3.dtos;
 
-import com.socialmediaassignment.team3.entities.Hashtag;
-import com.socialmediaassignment.team3.entities.Tweet;
-import com.socialmediaassignment.team3.entities.User;
+import com.socialmediaassignment.team3.entities.embeddable.Profile;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import javax.persistence.ManyToMany;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 @NoArgsConstructor
 @Data
@@ -18,6 +13,24 @@ public class TweetResponseDto {
     private UserResponseDto author;
     private String content;
     private Date posted;
-    private Tweet inReplyTo;
-    private Tweet repostOf;
+    private Long likeCount;
+    private Long repostCount;
+    private Long replyCount;
+    private TweetReferenceDto inReplyTo;
+    private TweetReferenceDto repostOf;
+
+    // Read-side projection built straight from a query row, see TweetRepository.DTO
+    public TweetResponseDto(Long id, String content, Date posted, Long likeCount, Long repostCount, Long replyCount,
+                            String authorUsername, Profile authorProfile, Date authorJoined,
+                            Long authorFollowerCount, Long authorFollowingCount, Long inReplyToId, Long repostOfId) {
+        this.id = id;
+        this.author = new UserResponseDto(authorUsername, authorProfile, authorJoined, authorFollowerCount, authorFollowingCount);
+        this.content = content;
+        this.posted = posted;
+        this.likeCount = likeCount;
+        this.repostCount = repostCount;
+        this.replyCount = replyCount;
+        this.inReplyTo = inReplyToId == null ? null : new TweetReferenceDto(inReplyToId);
+        this.repostOf = repostOfId == null ? null : new TweetReferenceDto(repostOfId);
+    }
 }
@@ -5,6 +5,7 @@ import com.socialmediaassignment.team3.entities.Tweet;
 import com.socialmediaassignment.team3.entities.User;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
 import com.socialmediaassignment.team3.entities.embeddable.Profile;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -12,10 +13,13 @@ import java.util.Date;
 import java.util.Set;
 
 @NoArgsConstructor
+@AllArgsConstructor
 @Data
 public class UserResponseDto {
 
     private String username;
     private Profile profile;
     private Date joined;
+    private Long followerCount;
+    private Long followingCount;
 }
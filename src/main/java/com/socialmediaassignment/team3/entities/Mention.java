@@ -0,0 +1,39 @@
+package com.socialmediaassignment.team3.entities;
+
+import com.socialmediaassignment.team3.entities.embeddable.MentionId;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/*
+    One row per user mentioned in a tweet, carrying the tweet's posted date so that a user's
+    mentions are a range scan on (user_id, posted) instead of a join sorted in memory.
+    Rows are written once when the tweet is posted, tweets are never edited.
+ */
+@Entity
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "mention_mapping", indexes = {
+        @Index(name = "idx_mention_user_posted", columnList = "user_id, posted, tweet_id")
+})
+public class Mention {
+    @EmbeddedId
+    private MentionId id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("tweetId")
+    @JoinColumn(name = "tweet_id")
+    private Tweet tweet;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("userId")
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(nullable = false)
+    private Date posted;
+}
@@ -0,0 +1,39 @@
+package com.socialmediaassignment.team3.entities;
+
+import com.socialmediaassignment.team3.entities.embeddable.TimelineEntryId;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/*
+    One row per tweet in a user's home feed. Rows are written when a tweet is
+    posted (fan-out to the author and their followers) and backfilled/trimmed
+    on follow/unfollow, so reading a feed is a range scan on (owner_id, posted).
+ */
+@Entity
+@NoArgsConstructor
+@Getter
+@Setter
+@Table(name = "timeline_entry", indexes = {
+        @Index(name = "idx_timeline_owner_posted", columnList = "owner_id, posted, tweet_id")
+})
+public class TimelineEntry {
+    @EmbeddedId
+    private TimelineEntryId id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("ownerId")
+    @JoinColumn(name = "owner_id")
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("tweetId")
+    @JoinColumn(name = "tweet_id")
+    private Tweet tweet;
+
+    @Column(nullable = false)
+    private Date posted;
+}
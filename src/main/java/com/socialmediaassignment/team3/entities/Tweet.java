@@ -16,7 +16,11 @@ import java.util.Set;
 @NoArgsConstructor
 @Getter
 @Setter
-@JsonIgnoreProperties({"reposts", "repostOf", "hashtags", "author", "usersMentioned", "likes", "replies", "inReplyTo"})
+@JsonIgnoreProperties({"reposts", "repostOf", "hashtags", "author", "likes", "replies", "inReplyTo"})
+// Walked by the reply tree queries, deleted replies included; the partial indexes on active tweets are in import.sql
+@Table(indexes = {
+        @Index(name = "idx_tweet_reply_to", columnList = "reply_to_id")
+})
 public class Tweet {
     @Id
     @GeneratedValue
@@ -27,30 +31,28 @@ public class Tweet {
     @NotNull
     private User author;
 
-    @ManyToMany(cascade = {CascadeType.ALL}, fetch = FetchType.EAGER)
+    @ManyToMany(cascade = {CascadeType.ALL})
     @JoinTable(name = "tweet_hashtag_mapping",
-            joinColumns = {@JoinColumn(name = "hashtag_id")},
-            inverseJoinColumns = {@JoinColumn(name = "tweet_id")}
+            joinColumns = {@JoinColumn(name = "tweet_id")},
+            inverseJoinColumns = {@JoinColumn(name = "hashtag_id")}
     )
     private Set<Hashtag> hashtags = new HashSet<>();
 
-    @ManyToMany(mappedBy = "mentions")
-    private Set<User> usersMentioned = new HashSet<>();
-
     @ManyToMany(mappedBy = "likedTweets")
     private Set<User> likes = new HashSet<>();
 
     @OneToMany(mappedBy = "repostOf")
     private Set<Tweet> reposts = new HashSet<>();
 
-    @ManyToOne
+    // Parents are lazy, responses only need their ids
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "repost_id")
     private Tweet repostOf;
 
     @OneToMany(mappedBy = "inReplyTo")
     private Set<Tweet> replies = new HashSet<>();
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reply_to_id")
     private Tweet inReplyTo;
 
@@ -62,15 +64,18 @@ public class Tweet {
     @CreationTimestamp
     private Date posted;
 
-    public void addMentionedUser(User user) {
-        this.usersMentioned.add(user);
-        user.getMentions().add(this);
-    }
+    /*
+        Counters are only written by the atomic increments in TweetRepository, never by dirty checking,
+        so a stale copy in one session cannot overwrite another session's increment.
+     */
+    @Column(nullable = false, updatable = false)
+    private long likeCount;
 
-    public void removeMentionedUser(User user) {
-        this.usersMentioned.remove(user);
-        user.getMentions().remove(this);
-    }
+    @Column(nullable = false, updatable = false)
+    private long repostCount;
+
+    @Column(nullable = false, updatable = false)
+    private long replyCount;
 
     public void addLike(User user) {
         this.likes.add(user);
@@ -10,6 +10,8 @@ import com.socialmediaassignment.team3.exceptions.BadRequestException;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import javax.persistence.*;
@@ -20,7 +22,9 @@ import java.util.*;
 @Getter
 @Setter
 @Table(name = "user_table")
-@JsonIgnoreProperties({"followers", "following", "likedTweets", "tweets", "mentions", "profile", "credential"})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@JsonIgnoreProperties({"followers", "following", "likedTweets", "tweets", "profile", "credential"})
 public class User {
     @Id
     @GeneratedValue
@@ -45,31 +49,32 @@ public class User {
 
     private boolean deleted;
 
+    // Maintained by UserRepository.addToFollowCounts, see the counters on Tweet
+    @Column(nullable = false, updatable = false)
+    private long followerCount;
+
+    @Column(nullable = false, updatable = false)
+    private long followingCount;
+
     @OneToMany(mappedBy = "author")
     private Set<Tweet> tweets = new HashSet<>();
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Collections are lazy: each service method asks the repository for the ones it needs
+    @ManyToMany
     @JoinTable(name = "tweet_like_mapping",
-            joinColumns = {@JoinColumn(name = "tweet_id")},
-            inverseJoinColumns = {@JoinColumn(name = "user_id")}
+            joinColumns = {@JoinColumn(name = "user_id")},
+            inverseJoinColumns = {@JoinColumn(name = "tweet_id")}
     )
     private Set<Tweet> likedTweets = new HashSet<>();
 
-    @ManyToMany(cascade = {CascadeType.ALL}, fetch = FetchType.EAGER)
-    @JoinTable(name = "mention_mapping",
-        joinColumns = {@JoinColumn(name = "tweet_id")},
-        inverseJoinColumns = {@JoinColumn(name = "user_id")}
-    )
-    private Set<Tweet> mentions = new HashSet<>();
-
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
     @JoinTable(name="follower_following_mapping",
         joinColumns = {@JoinColumn(name="follower_id")},
         inverseJoinColumns = {@JoinColumn(name="following_id")}
     )
     private Set<User> following = new HashSet<>();
 
-    @ManyToMany(mappedBy = "following", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "following")
     private Set<User> followers = new HashSet<>();
 
     public void addFollower(User follower) {
@@ -92,16 +97,6 @@ public class User {
         following.getFollowers().remove(this);
     }
 
-    public void addMention(Tweet tweet) {
-        this.mentions.add(tweet);
-        tweet.getUsersMentioned().add(this);
-    }
-
-    public void removeMention(Tweet tweet) {
-        this.mentions.remove(tweet);
-        tweet.getUsersMentioned().remove(this);
-    }
-
     public void addLikedTweet(Tweet tweet) {
         this.likedTweets.add(tweet);
         tweet.getLikes().add(this);
@@ -0,0 +1,20 @@
+package com.socialmediaassignment.team3.entities.embeddable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MentionId implements Serializable {
+    private static final long serialVersionUID = -2318546390285417263L;
+
+    private Long tweetId;
+
+    private Long userId;
+}
@@ -0,0 +1,20 @@
+package com.socialmediaassignment.team3.entities.embeddable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEntryId implements Serializable {
+    private static final long serialVersionUID = 4184630021497236718L;
+
+    private Long ownerId;
+
+    private Long tweetId;
+}
@@ -0,0 +1,15 @@
+package com.socialmediaassignment.team3.exceptions;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+public class QueryBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = -6215946431186120457L;
+
+    private String message;
+}
@@ -0,0 +1,15 @@
+package com.socialmediaassignment.team3.exceptions;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+public class ServiceUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 3391467215708342291L;
+
+    private String message;
+}
@@ -0,0 +1,37 @@
+package com.socialmediaassignment.team3.jobs;
+
+import com.socialmediaassignment.team3.caches.HotTweetCache;
+import com.socialmediaassignment.team3.caches.ResourceVersions;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/*
+    The engagement counters are kept by increments in the services, which can drift if a write bypasses them
+    (bulk loads, manual fixes) or races with this job. Each run recomputes them from the mapping tables.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CounterReconciliationJob {
+    private final TweetRepository tweetRepository;
+    private final UserRepository userRepository;
+    private final ResourceVersions resourceVersions;
+    private final HotTweetCache hotTweets;
+
+    @Scheduled(initialDelayString = "${tweeter.counters.reconcile-interval}",
+            fixedDelayString = "${tweeter.counters.reconcile-interval}")
+    public void reconcile() {
+        int tweets = tweetRepository.reconcileCounters();
+        int users = userRepository.reconcileCounters();
+        if (tweets > 0 || users > 0) {
+            log.info("Repaired counters on {} tweets and {} users", tweets, users);
+            // Which users and authors were touched isn't known here
+            resourceVersions.everythingChanged();
+            hotTweets.invalidateAll();
+        }
+    }
+}
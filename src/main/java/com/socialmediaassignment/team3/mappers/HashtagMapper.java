@@ -1,6 +1,8 @@
 package com.socialmediaassignment.team3.mappers;
 
+import com.socialmediaassignment.team3.caches.TrendingHashtags;
 import com.socialmediaassignment.team3.dtos.HashtagResponseDto;
+import com.socialmediaassignment.team3.dtos.TrendingHashtagResponseDto;
 import com.socialmediaassignment.team3.entities.Hashtag;
 import org.mapstruct.Mapper;
 
@@ -11,4 +13,6 @@ public interface HashtagMapper {
     HashtagResponseDto entityToDto(Hashtag entity);
 
     List<HashtagResponseDto> entitiesToDtos (List<Hashtag> entities);
+
+    List<TrendingHashtagResponseDto> trendsToDtos (List<TrendingHashtags.Trend> trends);
 }
@@ -0,0 +1,30 @@
+package com.socialmediaassignment.team3.metrics;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/*
+    The application's JdbcTemplate, in place of the one Spring Boot would configure. Every statement it creates
+    counts against the current request like the ones Hibernate prepares, so endpoints writing through JDBC batches
+    stay within their QueryBudget too. A batch is one statement however many rows it holds.
+ */
+@Component
+public class CountingJdbcTemplate extends JdbcTemplate {
+
+    public CountingJdbcTemplate(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    // Called once for each statement, before it runs
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        QueryCounts counts = QueryCounts.current();
+        if (counts != null)
+            counts.statementPrepared(String.valueOf(stmt));
+        super.applyStatementSettings(stmt);
+    }
+}
@@ -0,0 +1,81 @@
+package com.socialmediaassignment.team3.metrics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+    Counts the statements Hibernate prepares, the entities it loads and the flushes that actually write, into the
+    QueryCounts of the current request. Native queries count too, statements through JdbcTemplate are counted by
+    CountingJdbcTemplate.
+ */
+@Component
+public class HibernateQueryCounters implements HibernatePropertiesCustomizer {
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+            QueryCounts counts = QueryCounts.current();
+            if (counts != null)
+                counts.statementPrepared(sql);
+            return sql;
+        });
+        hibernateProperties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(new Listeners()));
+    }
+
+    private static class Listeners implements Integrator, PostLoadEventListener, FlushEventListener, AutoFlushEventListener {
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_LOAD, this);
+            registry.appendListeners(EventType.FLUSH, this);
+            registry.appendListeners(EventType.AUTO_FLUSH, this);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            QueryCounts counts = QueryCounts.current();
+            if (counts != null)
+                counts.entitiesLoaded.incrementAndGet();
+        }
+
+        // Runs after the default listener; a flush with nothing managed doesn't write anything
+        @Override
+        public void onFlush(FlushEvent event) {
+            QueryCounts counts = QueryCounts.current();
+            if (counts != null && (event.getNumberOfEntitiesProcessed() > 0 || event.getNumberOfCollectionsProcessed() > 0))
+                counts.flushes.incrementAndGet();
+        }
+
+        // Queries flush first only when they touch dirty tables
+        @Override
+        public void onAutoFlush(AutoFlushEvent event) {
+            QueryCounts counts = QueryCounts.current();
+            if (counts != null && event.isFlushRequired())
+                counts.flushes.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.socialmediaassignment.team3.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+    The most SQL statements one request to this endpoint may prepare, including lazy loads while the response is
+    written. Budgets don't depend on the size of the data, so a statement per row (an N+1) goes over one as soon as
+    there are a few rows. Enforced according to tweeter.query-budget.mode, see QueryBudgetProperties.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
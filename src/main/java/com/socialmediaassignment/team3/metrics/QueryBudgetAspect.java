@@ -0,0 +1,29 @@
+package com.socialmediaassignment.team3.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+    Puts the budget of the endpoint being called on the request's QueryCounts, which checks every statement
+    against it. Requests are only counted through RequestQueryMetrics, so calls outside a request are never limited.
+ */
+@Aspect
+@Component
+@EnableConfigurationProperties(QueryBudgetProperties.class)
+@RequiredArgsConstructor
+public class QueryBudgetAspect {
+    private final QueryBudgetProperties properties;
+
+    @Around("@annotation(budget)")
+    public Object limit(ProceedingJoinPoint joinPoint, QueryBudget budget) throws Throwable {
+        QueryCounts counts = QueryCounts.current();
+        if (counts != null && properties.getMode() != QueryBudgetProperties.Mode.OFF)
+            counts.limit(joinPoint.getSignature().toShortString(), budget.value(),
+                    properties.getMode() == QueryBudgetProperties.Mode.FAIL);
+        return joinPoint.proceed();
+    }
+}
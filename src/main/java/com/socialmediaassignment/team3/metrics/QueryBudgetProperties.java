@@ -0,0 +1,20 @@
+package com.socialmediaassignment.team3.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tweeter.query-budget")
+public class QueryBudgetProperties {
+    public enum Mode {
+        OFF,
+        // Logs the first statement over budget in each request with its call stack
+        WARN,
+        // Every statement over budget throws QueryBudgetExceededException, for tests
+        FAIL
+    }
+
+    private Mode mode = Mode.OFF;
+}
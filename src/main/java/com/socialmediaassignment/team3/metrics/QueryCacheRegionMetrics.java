@@ -0,0 +1,52 @@
+package com.socialmediaassignment.team3.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/*
+    Hit, miss and put counts of the query cache regions, as hibernate.cache.query.region.*. Hibernate's own binder
+    reports the entity regions one by one but sums every query region into hibernate.cache.query.*.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCacheRegionMetrics implements MeterBinder {
+    // The regions named by the cacheable queries in the repositories
+    private static final List<String> REGIONS = List.of("user-lookups", "hashtag-lookups");
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONS) {
+            _counter(registry, "hibernate.cache.query.region.requests", statistics, region, "hit",
+                    CacheRegionStatistics::getHitCount);
+            _counter(registry, "hibernate.cache.query.region.requests", statistics, region, "miss",
+                    CacheRegionStatistics::getMissCount);
+            _counter(registry, "hibernate.cache.query.region.puts", statistics, region, null,
+                    CacheRegionStatistics::getPutCount);
+        }
+    }
+
+    private static void _counter(MeterRegistry registry, String name, Statistics statistics, String region,
+                                 String result, ToLongFunction<CacheRegionStatistics> count) {
+        FunctionCounter.Builder<Statistics> builder = FunctionCounter.builder(name, statistics, s -> {
+            // Null until the region is first used
+            CacheRegionStatistics regionStatistics = s.getQueryRegionStatistics(region);
+            return regionStatistics == null ? 0 : count.applyAsLong(regionStatistics);
+        }).tag("region", region);
+        if (result != null)
+            builder.tag("result", result);
+        builder.register(registry);
+    }
+}
@@ -0,0 +1,60 @@
+package com.socialmediaassignment.team3.metrics;
+
+import com.socialmediaassignment.team3.exceptions.QueryBudgetExceededException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Database work done for one request. RequestQueryMetrics binds the request's counts to the thread handling it
+    and QueryCountsTaskDecorator carries them to the read and streaming threads, so work done there still counts.
+ */
+@Slf4j
+public class QueryCounts {
+    private static final ThreadLocal<QueryCounts> CURRENT = new ThreadLocal<>();
+
+    final AtomicLong statements = new AtomicLong();
+    final AtomicLong entitiesLoaded = new AtomicLong();
+    final AtomicLong flushes = new AtomicLong();
+    // Set by QueryBudgetAspect when the endpoint declares a budget
+    private volatile String endpoint;
+    private volatile long budget = Long.MAX_VALUE;
+    private volatile boolean fail;
+    private volatile boolean warned;
+
+    // Null outside a request, e.g. in jobs and the write-behind thread
+    static QueryCounts current() {
+        return CURRENT.get();
+    }
+
+    // Returns the counts bound before, to be restored when done
+    static QueryCounts bind(QueryCounts counts) {
+        QueryCounts previous = CURRENT.get();
+        if (counts == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(counts);
+        return previous;
+    }
+
+    void limit(String endpoint, long budget, boolean fail) {
+        this.endpoint = endpoint;
+        this.budget = budget;
+        this.fail = fail;
+    }
+
+    void statementPrepared(String sql) {
+        long count = statements.incrementAndGet();
+        if (count <= budget)
+            return;
+        String message = String.format("%s prepared %d SQL statements, over its budget of %d: %s",
+                endpoint, count, budget, sql);
+        if (fail)
+            throw new QueryBudgetExceededException(message);
+        if (!warned) {
+            warned = true;
+            // The stack trace shows where the statement over budget came from
+            log.warn(message, new Throwable("Statement over budget"));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.socialmediaassignment.team3.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/*
+    Picked up by the application task executor, which runs the streamed responses, and used by ReadExecutor.
+ */
+@Component
+public class QueryCountsTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable task) {
+        QueryCounts counts = QueryCounts.current();
+        if (counts == null)
+            return task;
+        return () -> {
+            QueryCounts previous = QueryCounts.bind(counts);
+            try {
+                task.run();
+            } finally {
+                QueryCounts.bind(previous);
+            }
+        };
+    }
+}
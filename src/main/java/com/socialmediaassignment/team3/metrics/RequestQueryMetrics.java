@@ -0,0 +1,70 @@
+package com.socialmediaassignment.team3.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Records the Hibernate work of each request as hibernate.request.* summaries, tagged like http.server.requests
+    by method and URI template, so /actuator/metrics shows which endpoints drive the database load. Async requests
+    (async reads, streams) are recorded once the last dispatch is done.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestQueryMetrics extends OncePerRequestFilter {
+    private static final String COUNTS = RequestQueryMetrics.class.getName() + ".COUNTS";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounts counts = (QueryCounts) request.getAttribute(COUNTS);
+        if (counts == null) {
+            counts = new QueryCounts();
+            request.setAttribute(COUNTS, counts);
+        }
+        QueryCounts previous = QueryCounts.bind(counts);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCounts.bind(previous);
+            if (!request.isAsyncStarted())
+                _record(request, counts);
+        }
+    }
+
+    private void _record(HttpServletRequest request, QueryCounts counts) {
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // Unmapped requests (404s) never reach a repository
+        if (uri == null)
+            return;
+        _summary("hibernate.request.statements", "SQL statements prepared per request", request, uri, counts.statements);
+        _summary("hibernate.request.entities.loaded", "Entities loaded per request", request, uri, counts.entitiesLoaded);
+        _summary("hibernate.request.flushes", "Flushes that wrote changes per request", request, uri, counts.flushes);
+    }
+
+    private void _summary(String name, String description, HttpServletRequest request, Object uri, AtomicLong count) {
+        DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", request.getMethod())
+                .tag("uri", uri.toString())
+                .register(meterRegistry)
+                .record(count.get());
+    }
+}
@@ -0,0 +1,58 @@
+package com.socialmediaassignment.team3.reads;
+
+import com.socialmediaassignment.team3.exceptions.ServiceUnavailableException;
+import com.socialmediaassignment.team3.metrics.QueryCountsTaskDecorator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/*
+    Runs the database reads behind the GET endpoints. With tweeter.reads.mode=async they go to a small bounded pool
+    and the controller returns the future, so Spring MVC completes the request asynchronously: a slow feed query
+    then holds a read thread instead of a Tomcat thread, and cheap requests like /validate keep being served.
+    In blocking mode the read runs inline and the future is already complete.
+ */
+@Component
+@EnableConfigurationProperties(ReadProperties.class)
+@RequiredArgsConstructor
+public class ReadExecutor {
+    private final ReadProperties properties;
+    private final QueryCountsTaskDecorator queryCountsTaskDecorator;
+    private ThreadPoolTaskExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        if (properties.getMode() != ReadProperties.Mode.ASYNC)
+            return;
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreads());
+        executor.setMaxPoolSize(properties.getThreads());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("read-");
+        executor.setTaskDecorator(queryCountsTaskDecorator);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    public <T> CompletableFuture<T> read(Supplier<T> read) {
+        if (executor == null)
+            return CompletableFuture.completedFuture(read.get());
+        try {
+            return CompletableFuture.supplyAsync(read, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many pending reads, try again later");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.socialmediaassignment.team3.reads;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tweeter.reads")
+public class ReadProperties {
+    public enum Mode {
+        // GET handlers run on the Tomcat request thread
+        BLOCKING,
+        // GET handlers run on the read pool, and the request thread is released while they do
+        ASYNC
+    }
+
+    private Mode mode = Mode.BLOCKING;
+
+    // Every read thread can hold a database connection, keep this below the pool size so cheap requests still get one
+    private int threads = 8;
+
+    // Reads waiting for a thread, beyond this they are rejected with 503
+    private int queueCapacity = 1_000;
+}
@@ -2,11 +2,68 @@ package com.socialmediaassignment.team3.repositories;
 
 import com.socialmediaassignment.team3.entities.Hashtag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface HashtagRepository extends JpaRepository<Hashtag, Long> {
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "hashtag-lookups")
+    })
     Optional<Hashtag> findByLabel(String label);
+
+    List<Hashtag> findByLabelIn(Collection<String> labels);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select h from Hashtag h")
+    Stream<Hashtag> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select h.label from Hashtag h")
+    Stream<String> streamLabels();
+
+    /*
+        Creates the missing labels and bumps lastUsed on the existing ones in one statement.
+        ON CONFLICT makes concurrent tweets introducing the same tag safe, and rows are
+        written in label order so two tweets sharing tags always lock them in the same order.
+
+        It runs as a query, so Hibernate invalidates no cached hashtags or lookups for it; every tagged tweet would
+        otherwise flush both regions. Each row comes back as its id and whether it was created, for the caller to
+        evict just those, see TweetServiceImpl._upsertHashtags.
+     */
+    default List<Object[]> upsertAll(Collection<String> labels, Date now) {
+        // Labels come from ContentTokenizer and never contain whitespace
+        return upsertSpaceSeparated(String.join(" ", labels), now);
+    }
+
+    @Transactional
+    @Query(value = "INSERT INTO hashtag (id, label, created_on, last_used) " +
+            "SELECT nextval('hibernate_sequence'), l.label, :now, :now " +
+            "FROM (SELECT DISTINCT unnest(string_to_array(:labels, ' ')) AS label) l ORDER BY l.label " +
+            "ON CONFLICT (label) DO UPDATE SET last_used = EXCLUDED.last_used " +
+            "RETURNING id, xmax = 0 AS created", nativeQuery = true)
+    List<Object[]> upsertSpaceSeparated(@Param("labels") String labels, @Param("now") Date now);
 }
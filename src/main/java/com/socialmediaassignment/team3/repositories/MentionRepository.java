@@ -0,0 +1,44 @@
+package com.socialmediaassignment.team3.repositories;
+
+import com.socialmediaassignment.team3.dtos.TweetResponseDto;
+import com.socialmediaassignment.team3.entities.Mention;
+import com.socialmediaassignment.team3.entities.embeddable.MentionId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+@Repository
+public interface MentionRepository extends JpaRepository<Mention, MentionId> {
+    String INBOX = TweetRepository.DTO + "from Mention m join m.tweet t join t.author a " +
+            "where m.id.userId = :userId and t.deleted = false";
+
+    @Query(INBOX + " and (m.posted < :posted or (m.posted = :posted and m.id.tweetId < :id)) " +
+            "order by m.posted desc, m.id.tweetId desc")
+    List<TweetResponseDto> findInboxBefore(@Param("userId") Long userId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(INBOX + " and (m.posted > :posted or (m.posted = :posted and m.id.tweetId > :id)) " +
+            "order by m.posted asc, m.id.tweetId asc")
+    List<TweetResponseDto> findInboxAfter(@Param("userId") Long userId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    // Resolves every mentioned username in the same statement; unknown names are skipped, deleted users are still mentioned
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "mention_mapping"))
+    @Query(value = "INSERT INTO mention_mapping (tweet_id, user_id, posted) " +
+            "SELECT CAST(:tweetId AS bigint), u.id, CAST(:posted AS timestamp) FROM user_table u WHERE u.username IN (:usernames) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertAll(@Param("tweetId") Long tweetId, @Param("posted") Date posted, @Param("usernames") Collection<String> usernames);
+}
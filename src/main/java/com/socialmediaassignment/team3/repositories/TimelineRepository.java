@@ -0,0 +1,69 @@
+package com.socialmediaassignment.team3.repositories;
+
+import com.socialmediaassignment.team3.dtos.TweetResponseDto;
+import com.socialmediaassignment.team3.entities.TimelineEntry;
+import com.socialmediaassignment.team3.entities.embeddable.TimelineEntryId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+@Repository
+public interface TimelineRepository extends JpaRepository<TimelineEntry, TimelineEntryId> {
+    String FEED = TweetRepository.DTO + "from TimelineEntry e join e.tweet t join t.author a " +
+            "where e.id.ownerId = :ownerId and t.deleted = false and a.deleted = false";
+
+    @Query(FEED + " and (e.posted < :posted or (e.posted = :posted and e.id.tweetId < :id)) " +
+            "order by e.posted desc, e.id.tweetId desc")
+    List<TweetResponseDto> findFeedBefore(@Param("ownerId") Long ownerId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(FEED + " and (e.posted > :posted or (e.posted = :posted and e.id.tweetId > :id)) " +
+            "order by e.posted asc, e.id.tweetId asc")
+    List<TweetResponseDto> findFeedAfter(@Param("ownerId") Long ownerId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    // Appends a new tweet to the author's timeline and to the timeline of everyone following them.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "timeline_entry"))
+    @Query(value = "INSERT INTO timeline_entry (owner_id, tweet_id, posted) " +
+            "SELECT CAST(:authorId AS bigint), CAST(:tweetId AS bigint), CAST(:posted AS timestamp) " +
+            "UNION SELECT f.follower_id, :tweetId, :posted FROM follower_following_mapping f WHERE f.following_id = :authorId " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int fanOut(@Param("authorId") Long authorId, @Param("tweetId") Long tweetId, @Param("posted") Date posted);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "timeline_entry"))
+    @Query(value = "INSERT INTO timeline_entry (owner_id, tweet_id, posted) " +
+            "SELECT :ownerId, t.id, t.created_on FROM tweet t WHERE t.author_id = :authorId " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int backfill(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from TimelineEntry e where e.id.ownerId = :ownerId " +
+            "and e.id.tweetId in (select t.id from Tweet t where t.author.id = :authorId)")
+    int trim(@Param("ownerId") Long ownerId, @Param("authorId") Long authorId);
+
+    // Rebuilds every timeline from the tweet and follow tables, used after bulk loads that bypass the services.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "timeline_entry"))
+    @Query(value = "INSERT INTO timeline_entry (owner_id, tweet_id, posted) " +
+            "SELECT t.author_id, t.id, t.created_on FROM tweet t " +
+            "UNION SELECT f.follower_id, t.id, t.created_on FROM tweet t " +
+            "JOIN follower_following_mapping f ON f.following_id = t.author_id " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int rebuildAll();
+}
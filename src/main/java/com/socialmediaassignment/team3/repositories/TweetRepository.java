@@ -1,13 +1,170 @@
 package com.socialmediaassignment.team3.repositories;
 
-import com.socialmediaassignment.team3.entities.Hashtag;
+import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.entities.Tweet;
+import com.socialmediaassignment.team3.entities.embeddable.Profile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface TweetRepository extends JpaRepository<Tweet, Long> {
+    // Keyset conditions on (posted, id); every list query below is one of these two range scans
+    String BEFORE = " and (t.posted < :posted or (t.posted = :posted and t.id < :id)) order by t.posted desc, t.id desc";
+    String AFTER = " and (t.posted > :posted or (t.posted = :posted and t.id > :id)) order by t.posted asc, t.id asc";
+
+    /*
+        Tweet lists are read as DTOs built from the selected columns, with the author joined as 'a' and parents as
+        bare ids. No entities are hydrated, so these rows never enter the persistence context or dirty checking.
+     */
+    String DTO = "select new com.socialmediaassignment.team3.dtos.TweetResponseDto(t.id, t.content, t.posted, " +
+            "t.likeCount, t.repostCount, t.replyCount, a.credential.username, a.profile, a.joined, " +
+            "a.followerCount, a.followingCount, t.inReplyTo.id, t.repostOf.id) ";
+
+    String ACTIVE = DTO + "from Tweet t join t.author a where t.deleted = false";
+    String BY_AUTHOR = ACTIVE + " and a.id = :authorId";
+    String BY_HASHTAG = DTO + "from Hashtag h join h.tweets t join t.author a " +
+            "where h.id = :hashtagId and t.deleted = false";
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM tweet_like_mapping WHERE user_id = :userId AND tweet_id = :tweetId)",
+            nativeQuery = true)
+    boolean isLikedBy(@Param("userId") Long userId, @Param("tweetId") Long tweetId);
+
+    @Transactional
+    @Modifying
+    @Query("update Tweet t set t.likeCount = t.likeCount + :delta where t.id = :id")
+    int addToLikeCount(@Param("id") Long id, @Param("delta") long delta);
+
+    @Transactional
+    @Modifying
+    @Query("update Tweet t set t.repostCount = t.repostCount + :delta where t.id = :id")
+    int addToRepostCount(@Param("id") Long id, @Param("delta") long delta);
+
+    @Transactional
+    @Modifying
+    @Query("update Tweet t set t.replyCount = t.replyCount + :delta where t.id = :id")
+    int addToReplyCount(@Param("id") Long id, @Param("delta") long delta);
+
+    // Like counts of every tweet a user liked, moved by delta when the user is deleted or comes back
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "tweet"))
+    @Query(value = "UPDATE tweet t SET like_count = t.like_count + :delta FROM tweet_like_mapping m " +
+            "WHERE m.user_id = :userId AND t.id = m.tweet_id", nativeQuery = true)
+    int addToLikeCountsOfLiker(@Param("userId") Long userId, @Param("delta") long delta);
+
+    // Recomputes every tweet's counters from the mapping tables and active likers, touching only rows that drifted
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "tweet"))
+    @Query(value = "UPDATE tweet t SET like_count = c.likes, repost_count = c.reposts, reply_count = c.replies " +
+            "FROM (SELECT t2.id, COALESCE(l.n, 0) AS likes, COALESCE(p.n, 0) AS reposts, COALESCE(r.n, 0) AS replies " +
+            "FROM tweet t2 " +
+            "LEFT JOIN (SELECT m.tweet_id, count(*) AS n FROM tweet_like_mapping m " +
+            "JOIN user_table u ON u.id = m.user_id WHERE NOT u.deleted GROUP BY m.tweet_id) l ON l.tweet_id = t2.id " +
+            "LEFT JOIN (SELECT repost_id, count(*) AS n FROM tweet WHERE NOT deleted GROUP BY repost_id) p ON p.repost_id = t2.id " +
+            "LEFT JOIN (SELECT reply_to_id, count(*) AS n FROM tweet WHERE NOT deleted GROUP BY reply_to_id) r ON r.reply_to_id = t2.id) c " +
+            "WHERE t.id = c.id AND (t.like_count, t.repost_count, t.reply_count) IS DISTINCT FROM (c.likes, c.reposts, c.replies)",
+            nativeQuery = true)
+    int reconcileCounters();
+
+    Optional<Tweet> findByIdAndDeletedFalse(Long id);
+
+    @Query(ACTIVE + " and t.id = :id")
+    Optional<TweetResponseDto> findActiveDtoById(@Param("id") Long id);
+
+    @Query(ACTIVE + " and t.inReplyTo.id = :id order by t.posted, t.id")
+    List<TweetResponseDto> findActiveRepliesTo(@Param("id") Long id);
+
+    @Query(ACTIVE + " and t.repostOf.id = :id order by t.posted, t.id")
+    List<TweetResponseDto> findActiveRepostsOf(@Param("id") Long id);
+
+    /*
+        The reply tree queries join the rows of the tree in the same statement, so a thread of any size is one
+        round trip with one bind parameter. They are native, the columns are those of DTO in order, see _contextRow.
+     */
+    String CONTEXT_COLUMNS = "SELECT t.id, t.content, t.created_on, t.like_count, t.repost_count, t.reply_count, " +
+            "a.username, a.first_name, a.last_name, a.email, a.phone, a.created_on AS joined, a.follower_count, " +
+            "a.following_count, t.reply_to_id, t.repost_id FROM tweet t JOIN user_table a ON a.id = t.author_id ";
+
+    default List<TweetResponseDto> findAncestors(Long id, int maxDepth) {
+        return findAncestorRows(id, maxDepth).stream().map(TweetRepository::_contextRow).collect(Collectors.toList());
+    }
+
+    default List<TweetResponseDto> findDescendants(Long id, int maxDepth, int maxSize) {
+        return findDescendantRows(id, maxDepth, maxSize).stream().map(TweetRepository::_contextRow)
+                .collect(Collectors.toList());
+    }
+
+    // Reply chain above a tweet, oldest first, walking at most maxDepth levels up
+    @Query(value = "WITH RECURSIVE ancestors(id, reply_to_id, depth) AS (" +
+            "SELECT t.id, t.reply_to_id, 0 FROM tweet t WHERE t.id = :id " +
+            "UNION ALL SELECT p.id, p.reply_to_id, d.depth + 1 FROM tweet p " +
+            "JOIN ancestors d ON p.id = d.reply_to_id WHERE d.depth < :maxDepth) " +
+            CONTEXT_COLUMNS + "JOIN ancestors d ON t.id = d.id " +
+            "WHERE d.depth > 0 AND t.deleted = false ORDER BY t.created_on, t.id", nativeQuery = true)
+    List<Object[]> findAncestorRows(@Param("id") Long id, @Param("maxDepth") int maxDepth);
+
+    // Every reply below a tweet (replies of deleted replies included), the oldest maxSize of them
+    @Query(value = "WITH RECURSIVE descendants(id, depth) AS (" +
+            "SELECT t.id, 1 FROM tweet t WHERE t.reply_to_id = :id " +
+            "UNION ALL SELECT r.id, d.depth + 1 FROM tweet r " +
+            "JOIN descendants d ON r.reply_to_id = d.id WHERE d.depth < :maxDepth) " +
+            CONTEXT_COLUMNS + "JOIN descendants d ON t.id = d.id " +
+            "WHERE t.deleted = false ORDER BY t.created_on, t.id LIMIT :maxSize", nativeQuery = true)
+    List<Object[]> findDescendantRows(@Param("id") Long id, @Param("maxDepth") int maxDepth, @Param("maxSize") int maxSize);
+
+    // Hibernate hands back native bigint columns as BigInteger and timestamps as Timestamp
+    private static TweetResponseDto _contextRow(Object[] row) {
+        return new TweetResponseDto(_long(row[0]), (String) row[1], (Date) row[2], _long(row[3]), _long(row[4]),
+                _long(row[5]), (String) row[6], new Profile((String) row[7], (String) row[8], (String) row[9],
+                (String) row[10]), (Date) row[11], _long(row[12]), _long(row[13]), _long(row[14]), _long(row[15]));
+    }
+
+    private static Long _long(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    // Every active tweet in no particular order, read through a server-side cursor
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(ACTIVE)
+    Stream<TweetResponseDto> streamActive();
+
+    @Query(ACTIVE + BEFORE)
+    List<TweetResponseDto> findActiveBefore(@Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(ACTIVE + AFTER)
+    List<TweetResponseDto> findActiveAfter(@Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(BY_AUTHOR + BEFORE)
+    List<TweetResponseDto> findActiveByAuthorBefore(@Param("authorId") Long authorId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(BY_AUTHOR + AFTER)
+    List<TweetResponseDto> findActiveByAuthorAfter(@Param("authorId") Long authorId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
+
+    @Query(BY_HASHTAG + BEFORE)
+    List<TweetResponseDto> findActiveByHashtagBefore(@Param("hashtagId") Long hashtagId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
 
+    @Query(BY_HASHTAG + AFTER)
+    List<TweetResponseDto> findActiveByHashtagAfter(@Param("hashtagId") Long hashtagId, @Param("posted") Date posted, @Param("id") Long id, Pageable pageable);
 }
@@ -3,15 +3,146 @@ package com.socialmediaassignment.team3.repositories;
 import com.socialmediaassignment.team3.entities.User;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Username lookups are in the query cache, dropped whenever a user is created, updated or deleted
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "user-lookups")
+    })
     Optional<User> findByCredentialUsername(String username);
 
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "user-lookups")
+    })
+    Optional<User> findByCredentialUsernameAndDeletedFalse(String username);
+
+    List<User> findByDeletedFalse();
+
+    @Query("select u from User u join u.likedTweets t where t.id = :tweetId and u.deleted = false")
+    List<User> findActiveLikersOf(@Param("tweetId") Long tweetId);
+
+    @Query("select u from Mention m join m.user u where m.id.tweetId = :tweetId and u.deleted = false")
+    List<User> findActiveMentionedIn(@Param("tweetId") Long tweetId);
+
+    @Query("select f from User u join u.following f where u.id = :userId and f.deleted = false")
+    List<User> findActiveFollowingOf(@Param("userId") Long userId);
+
+    @Query("select f from User f join f.following u where u.id = :userId and f.deleted = false")
+    List<User> findActiveFollowersOf(@Param("userId") Long userId);
+
     Optional<User> findOneByCredential(Credential credential);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select u from User u where u.deleted = false")
+    Stream<User> streamActive();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select u.credential.username from User u")
+    Stream<String> streamUsernames();
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM follower_following_mapping " +
+            "WHERE follower_id = :followerId AND following_id = :followingId)", nativeQuery = true)
+    boolean isFollowing(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    // One statement however many ids there are, a JPQL 'in' would need a bind parameter per id
+    default List<User> findActiveByIdIn(long[] ids) {
+        if (ids.length == 0)
+            return List.of();
+        return findActiveByCommaSeparatedIds(Arrays.stream(ids).mapToObj(Long::toString).collect(Collectors.joining(",")));
+    }
+
+    @Query(value = "SELECT u.* FROM user_table u " +
+            "WHERE u.id = ANY(CAST(string_to_array(:ids, ',') AS bigint[])) AND NOT u.deleted ORDER BY u.id",
+            nativeQuery = true)
+    List<User> findActiveByCommaSeparatedIds(@Param("ids") String ids);
+
+    // Follows are written straight to the mapping table, user.getFollowing() would load every followed user
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "follower_following_mapping"))
+    @Query(value = "INSERT INTO follower_following_mapping (follower_id, following_id) " +
+            "VALUES (:followerId, :followingId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertFollow(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "follower_following_mapping"))
+    @Query(value = "DELETE FROM follower_following_mapping " +
+            "WHERE follower_id = :followerId AND following_id = :followingId", nativeQuery = true)
+    int deleteFollow(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    /*
+        Both sides of a follow in one statement, so two users following each other lock rows in the same order.
+        The statement declares its own query space rather than user_table, which would drop every cached user on
+        every follow; callers evict the two users from the second-level cache instead. A concurrent read can still
+        cache the counters from before the commit, the 'user' region's expiry in application.conf bounds that.
+     */
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_follow_counts"))
+    @Query(value = "UPDATE user_table SET " +
+            "following_count = following_count + CASE WHEN id = :followerId THEN :delta ELSE 0 END, " +
+            "follower_count = follower_count + CASE WHEN id = :followingId THEN :delta ELSE 0 END " +
+            "WHERE id IN (:followerId, :followingId)", nativeQuery = true)
+    int addToFollowCounts(@Param("followerId") Long followerId, @Param("followingId") Long followingId, @Param("delta") long delta);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_table"))
+    @Query(value = "UPDATE user_table u SET follower_count = c.followers, following_count = c.following " +
+            "FROM (SELECT u2.id, COALESCE(fr.n, 0) AS followers, COALESCE(fg.n, 0) AS following " +
+            "FROM user_table u2 " +
+            "LEFT JOIN (SELECT m.following_id, count(*) AS n FROM follower_following_mapping m " +
+            "JOIN user_table f ON f.id = m.follower_id WHERE NOT f.deleted GROUP BY m.following_id) fr ON fr.following_id = u2.id " +
+            "LEFT JOIN (SELECT m.follower_id, count(*) AS n FROM follower_following_mapping m " +
+            "JOIN user_table f ON f.id = m.following_id WHERE NOT f.deleted GROUP BY m.follower_id) fg ON fg.follower_id = u2.id) c " +
+            "WHERE u.id = c.id AND (u.follower_count, u.following_count) IS DISTINCT FROM (c.followers, c.following)",
+            nativeQuery = true)
+    int reconcileCounters();
+
+    /*
+        Follow counters only count active users, like the lists they summarize. When a user is deleted (delta -1)
+        or comes back (delta +1), everyone they follow and everyone following them moves by delta; their own
+        counters don't. Many users change, so the statement declares user_table and the user region is dropped.
+     */
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_table"))
+    @Query(value = "UPDATE user_table u SET follower_count = u.follower_count + :delta * c.followed, " +
+            "following_count = u.following_count + :delta * c.following " +
+            "FROM (SELECT id, sum(followed) AS followed, sum(following) AS following FROM (" +
+            "SELECT following_id AS id, 1 AS followed, 0 AS following FROM follower_following_mapping WHERE follower_id = :userId " +
+            "UNION ALL SELECT follower_id, 0, 1 FROM follower_following_mapping WHERE following_id = :userId) e GROUP BY id) c " +
+            "WHERE u.id = c.id", nativeQuery = true)
+    int addToCountsOfRelations(@Param("userId") Long userId, @Param("delta") long delta);
 //    User findByCredentialUsername(String username);
 }
@@ -1,12 +1,23 @@
 package com.socialmediaassignment.team3.services;
 
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
 import com.socialmediaassignment.team3.dtos.HashtagResponseDto;
+import com.socialmediaassignment.team3.dtos.TrendingHashtagResponseDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface HashtagService {
     List<HashtagResponseDto> getAllHashtags();
 
-    List<TweetResponseDto> getTweetByTag(String label);
+    // ETag of the hashtag list
+    String getAllHashtagsVersion();
+
+    void streamAllHashtags(OutputStream out) throws IOException;
+
+    List<TrendingHashtagResponseDto> getTrendingHashtags(String window, Integer limit);
+
+    List<TweetResponseDto> getTweetByTag(String label, CursorRequestDto page);
 }
@@ -1,23 +1,38 @@
 package com.socialmediaassignment.team3.services;
 
 import com.socialmediaassignment.team3.dtos.ContextResponseDto;
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetBatchResultDto;
 import com.socialmediaassignment.team3.dtos.TweetRequestDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Optional;
 
 public interface TweetService {
-    List<TweetResponseDto> getActiveTweets();
+    int MAX_BATCH_SIZE = 10_000;
+    // Replies returned in a context's 'after' when the caller doesn't pass a limit
+    int DEFAULT_CONTEXT_LIMIT = 1_000;
+
+    List<TweetResponseDto> getActiveTweets(CursorRequestDto page);
+
+    void streamActiveTweets(OutputStream out) throws IOException;
 
     TweetResponseDto getTweetById(Long id);
 
     TweetResponseDto createTweet(TweetRequestDto tweetRequestDto);
 
+    List<TweetBatchResultDto> createTweets(List<TweetRequestDto> tweetRequestDtos);
+
     void likeTweetById(Long id, Credential credential);
 
-    ContextResponseDto getContextForTweet(Long id);
+    void unlikeTweetById(Long id, Credential credential);
+
+    ContextResponseDto getContextForTweet(Long id, Integer depth, Integer limit);
 
     TweetResponseDto deleteTweetById(Long id, Credential credential);
 
@@ -33,9 +48,12 @@ public interface TweetService {
 
     List<UserResponseDto> getLikeForTweet(Long id);
 
-    List<TweetResponseDto> getUserTweets(String username);
+    List<TweetResponseDto> getUserTweets(String username, CursorRequestDto page);
+
+    List<TweetResponseDto> getTweetsByMention(String username, CursorRequestDto page);
 
-    List<TweetResponseDto> getTweetsByMention(String username);
+    List<TweetResponseDto> getUserFeed(String username, CursorRequestDto page);
 
-    List<TweetResponseDto> getUserFeed(String username);
+    // ETag of the feed of the active user with this username, empty if there is none or it can't be computed yet
+    Optional<String> getUserFeedVersion(String username);
 }
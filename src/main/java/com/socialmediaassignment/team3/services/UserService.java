@@ -4,15 +4,23 @@ import com.socialmediaassignment.team3.dtos.UserRequestDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Optional;
 
 public interface UserService {
     List<UserResponseDto> getActiveUsers ();
 
+    void streamActiveUsers(OutputStream out) throws IOException;
+
     UserResponseDto createUser(UserRequestDto userRequestDto);
 
     UserResponseDto getUserByUsername(String username);
 
+    // ETag of the active user with this username, empty if there is none
+    Optional<String> getUserVersion(String username);
+
     UserResponseDto updateUser(String username, UserRequestDto userRequestDto);
 
     UserResponseDto deleteUser(String username, Credential credential);
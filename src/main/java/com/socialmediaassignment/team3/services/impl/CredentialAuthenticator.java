@@ -0,0 +1,38 @@
+package com.socialmediaassignment.team3.services.impl;
+
+import com.socialmediaassignment.team3.caches.PrincipalCache;
+import com.socialmediaassignment.team3.entities.User;
+import com.socialmediaassignment.team3.entities.embeddable.Credential;
+import com.socialmediaassignment.team3.exceptions.UnauthorizedException;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/*
+    Resolves the credentials of a write request to the active user they belong to. Credentials verified before are
+    found in the PrincipalCache, and the user is then read by id, usually from the second-level cache.
+ */
+@Component
+@RequiredArgsConstructor
+class CredentialAuthenticator {
+    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+
+    User authorize(Credential credential) {
+        Optional<Long> cachedUserId = principalCache.getUserId(credential);
+        if (cachedUserId.isPresent()) {
+            // A request that read the row before a delete committed can have put the principal back
+            User cached = userRepository.findById(cachedUserId.get()).orElse(null);
+            if (cached == null || cached.isDeleted())
+                throw new UnauthorizedException("Bad credentials");
+            return cached;
+        }
+        Optional<User> userOptional = userRepository.findOneByCredential(credential);
+        if (userOptional.isEmpty() || userOptional.get().isDeleted())
+            throw new UnauthorizedException("Bad credentials");
+        principalCache.put(credential, userOptional.get().getId());
+        return userOptional.get();
+    }
+}
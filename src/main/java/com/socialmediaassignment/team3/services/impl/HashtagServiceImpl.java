@@ -1,18 +1,27 @@
 package com.socialmediaassignment.team3.services.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.caches.ResourceVersions;
+import com.socialmediaassignment.team3.caches.TrendingHashtags;
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
 import com.socialmediaassignment.team3.dtos.HashtagResponseDto;
+import com.socialmediaassignment.team3.dtos.TrendingHashtagResponseDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.entities.Hashtag;
 import com.socialmediaassignment.team3.exceptions.BadRequestException;
 import com.socialmediaassignment.team3.mappers.HashtagMapper;
-import com.socialmediaassignment.team3.mappers.TweetMapper;
 import com.socialmediaassignment.team3.repositories.HashtagRepository;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
 import com.socialmediaassignment.team3.services.HashtagService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -24,10 +33,15 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class HashtagServiceImpl implements HashtagService {
+    private static final int DEFAULT_TRENDING_LIMIT = 10;
 
     private final HashtagMapper hashtagMapper;
+    private final ResourceVersions resourceVersions;
     private final HashtagRepository hashtagRepository;
-    private final TweetMapper tweetMapper;
+    private final TweetRepository tweetRepository;
+    private final TrendingHashtags trendingHashtags;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
     @Override
     public List<HashtagResponseDto> getAllHashtags() {
@@ -35,10 +49,35 @@ public class HashtagServiceImpl implements HashtagService {
     }
 
     @Override
-    public List<TweetResponseDto> getTweetByTag(String label) {
+    public String getAllHashtagsVersion() {
+        return resourceVersions.hashtags();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllHashtags(OutputStream out) throws IOException {
+        StreamingJson.writeArray(out, objectMapper, entityManager, hashtagRepository.streamAll(), hashtagMapper::entityToDto);
+    }
+
+    @Override
+    public List<TrendingHashtagResponseDto> getTrendingHashtags(String window, Integer limit) {
+        if (limit == null)
+            limit = DEFAULT_TRENDING_LIMIT;
+        if (limit < 1)
+            throw new BadRequestException("Field 'limit' must be positive");
+        if (limit > TrendingHashtags.MAX_LIMIT)
+            throw new BadRequestException("Field 'limit' must be at most " + TrendingHashtags.MAX_LIMIT);
+        return hashtagMapper.trendsToDtos(trendingHashtags.top(TrendingHashtags.Window.fromLabel(window), limit));
+    }
+
+    @Override
+    public List<TweetResponseDto> getTweetByTag(String label, CursorRequestDto page) {
         Optional<Hashtag> hashtagOptional = hashtagRepository.findByLabel(label);
         if (hashtagOptional.isEmpty())
             throw new BadRequestException("Invalid label");
-        return tweetMapper.entitiesToDtos(hashtagOptional.get().getTweets().stream().filter(t -> !t.isDeleted()).collect(Collectors.toList()));
+        Long hashtagId = hashtagOptional.get().getId();
+        return KeysetPagination.fetch(page,
+                (posted, id, pageable) -> tweetRepository.findActiveByHashtagBefore(hashtagId, posted, id, pageable),
+                (posted, id, pageable) -> tweetRepository.findActiveByHashtagAfter(hashtagId, posted, id, pageable));
     }
 }
@@ -0,0 +1,32 @@
+package com.socialmediaassignment.team3.services.impl;
+
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetCursor;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+final class KeysetPagination {
+    @FunctionalInterface
+    interface KeysetQuery<T> {
+        List<T> find(Date posted, Long id, Pageable pageable);
+    }
+
+    private KeysetPagination() {
+    }
+
+    // 'before' queries return newest first; 'after' queries return oldest first and are flipped here
+    static <T> List<T> fetch(CursorRequestDto page, KeysetQuery<T> before, KeysetQuery<T> after) {
+        if (!page.isAfter()) {
+            TweetCursor cursor = page.getBeforeCursor();
+            return before.find(cursor.getPosted(), cursor.getId(), page.toPageable());
+        }
+        TweetCursor cursor = page.getAfterCursor();
+        List<T> result = new ArrayList<>(after.find(cursor.getPosted(), cursor.getId(), page.toPageable()));
+        Collections.reverse(result);
+        return result;
+    }
+}
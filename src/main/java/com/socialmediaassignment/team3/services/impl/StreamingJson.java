@@ -0,0 +1,41 @@
+package com.socialmediaassignment.team3.services.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+    Writes a streamed query to the response as one JSON array while its rows are still being fetched.
+    The persistence context is cleared every CLEAR_INTERVAL rows, so memory per request stays flat however
+    large the table is. Must be called inside a transaction, the stream's cursor only lives as long as it.
+ */
+final class StreamingJson {
+    private static final int CLEAR_INTERVAL = 500;
+
+    private StreamingJson() {
+    }
+
+    static <T> void writeArray(OutputStream out, ObjectMapper objectMapper, EntityManager entityManager,
+                               Stream<T> rows, Function<T, ?> toDto) throws IOException {
+        // Flushing after every value would send each row to the client as its own chunk
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (rows; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Iterator<T> iterator = rows.iterator();
+            for (int count = 1; iterator.hasNext(); count++) {
+                writer.writeValue(generator, toDto.apply(iterator.next()));
+                if (count % CLEAR_INTERVAL == 0)
+                    entityManager.clear();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
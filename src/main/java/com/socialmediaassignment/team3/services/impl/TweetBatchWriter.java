@@ -0,0 +1,71 @@
+package com.socialmediaassignment.team3.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/*
+    Writes new simple tweets by one author as JDBC batches rather than one entity and a handful of statements per
+    tweet: ids come from the sequence in one statement, the tweets, their hashtags and their mentions are one batch
+    each, and the tweets reach every follower's timeline in a single statement. Runs in the caller's transaction;
+    the tweets never enter the persistence context.
+ */
+@Component
+@RequiredArgsConstructor
+class TweetBatchWriter {
+    private static final String NEXT_IDS = "SELECT nextval('hibernate_sequence') FROM generate_series(1, ?)";
+    private static final String INSERT_TWEET = "INSERT INTO tweet (id, author_id, content, created_on, " +
+            "deleted, like_count, repost_count, reply_count) VALUES (?, ?, ?, ?, false, 0, 0, 0)";
+    private static final String INSERT_TAGGING = "INSERT INTO tweet_hashtag_mapping (tweet_id, hashtag_id) VALUES (?, ?)";
+    // Same rules as MentionRepository.insertAll: unknown names are skipped, deleted users are still mentioned
+    private static final String INSERT_MENTION = "INSERT INTO mention_mapping (tweet_id, user_id, posted) " +
+            "SELECT ?, u.id, ? FROM user_table u WHERE u.username = ? ON CONFLICT DO NOTHING";
+    /*
+        The sequence is shared, so other tweets can fall inside the id range. Those by other authors are filtered
+        out, and those by this author in another committed batch already have their entries.
+     */
+    private static final String FAN_OUT = "INSERT INTO timeline_entry (owner_id, tweet_id, posted) " +
+            "SELECT o.owner_id, t.id, t.created_on FROM tweet t CROSS JOIN (SELECT CAST(? AS bigint) AS owner_id " +
+            "UNION SELECT f.follower_id FROM follower_following_mapping f WHERE f.following_id = ?) o " +
+            "WHERE t.author_id = ? AND t.id BETWEEN ? AND ? ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Returns the new tweets' ids, in the order of the drafts
+    long[] insert(long authorId, Date posted, List<Draft> drafts) {
+        long[] ids = jdbcTemplate.queryForList(NEXT_IDS, Long.class, drafts.size()).stream()
+                .mapToLong(Long::longValue).sorted().toArray();
+        Timestamp timestamp = new Timestamp(posted.getTime());
+        List<Object[]> tweets = new ArrayList<>(drafts.size());
+        List<Object[]> taggings = new ArrayList<>();
+        List<Object[]> mentions = new ArrayList<>();
+        for (int i = 0; i < drafts.size(); i++) {
+            Draft draft = drafts.get(i);
+            tweets.add(new Object[]{ids[i], authorId, draft.content, timestamp});
+            for (Long hashtagId : draft.hashtagIds)
+                taggings.add(new Object[]{ids[i], hashtagId});
+            for (String username : draft.mentions)
+                mentions.add(new Object[]{ids[i], timestamp, username});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TWEET, tweets);
+        if (!taggings.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_TAGGING, taggings);
+        if (!mentions.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_MENTION, mentions);
+        jdbcTemplate.update(FAN_OUT, authorId, authorId, authorId, ids[0], ids[ids.length - 1]);
+        return ids;
+    }
+
+    @RequiredArgsConstructor
+    static class Draft {
+        private final String content;
+        private final Collection<Long> hashtagIds;
+        private final Collection<String> mentions;
+    }
+}
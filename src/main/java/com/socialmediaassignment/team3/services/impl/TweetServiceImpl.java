@@ -1,7 +1,15 @@
 package com.socialmediaassignment.team3.services.impl;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.caches.FollowGraph;
+import com.socialmediaassignment.team3.caches.HotTweetCache;
+import com.socialmediaassignment.team3.caches.NameFilters;
+import com.socialmediaassignment.team3.caches.ResourceVersions;
+import com.socialmediaassignment.team3.caches.TrendingHashtags;
 import com.socialmediaassignment.team3.dtos.ContextResponseDto;
+import com.socialmediaassignment.team3.dtos.CursorRequestDto;
+import com.socialmediaassignment.team3.dtos.TweetBatchResultDto;
 import com.socialmediaassignment.team3.dtos.TweetRequestDto;
 import com.socialmediaassignment.team3.dtos.TweetResponseDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
@@ -15,16 +23,26 @@ import com.socialmediaassignment.team3.exceptions.UnauthorizedException;
 import com.socialmediaassignment.team3.mappers.TweetMapper;
 import com.socialmediaassignment.team3.mappers.UserMapper;
 import com.socialmediaassignment.team3.repositories.HashtagRepository;
+import com.socialmediaassignment.team3.repositories.MentionRepository;
+import com.socialmediaassignment.team3.repositories.TimelineRepository;
 import com.socialmediaassignment.team3.repositories.TweetRepository;
 import com.socialmediaassignment.team3.repositories.UserRepository;
 import com.socialmediaassignment.team3.services.TweetService;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import com.socialmediaassignment.team3.utils.ContentTokenizer;
+import com.socialmediaassignment.team3.writebehind.RelationWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import java.util.*;
@@ -39,209 +57,353 @@ public class TweetServiceImpl implements TweetService {
     private final UserMapper userMapper;
     private final UserRepository userRepository;
     private final HashtagRepository hashtagRepository;
+    private final TimelineRepository timelineRepository;
+    private final MentionRepository mentionRepository;
+    private final CredentialAuthenticator authenticator;
+    private final TrendingHashtags trendingHashtags;
+    private final NameFilters nameFilters;
+    private final RelationWriter relationWriter;
+    private final TweetBatchWriter tweetBatchWriter;
+    private final HotTweetCache hotTweets;
+    private final ResourceVersions resourceVersions;
+    private final FollowGraph followGraph;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
     @Override
-    public List<TweetResponseDto> getActiveTweets() {
-        return tweetMapper.entitiesToDtos(tweetRepository.findAll().stream().filter(tweet -> !tweet.isDeleted()).collect(Collectors.toList()));
+    public List<TweetResponseDto> getActiveTweets(CursorRequestDto page) {
+        return KeysetPagination.fetch(page,
+                tweetRepository::findActiveBefore,
+                tweetRepository::findActiveAfter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamActiveTweets(OutputStream out) throws IOException {
+        StreamingJson.writeArray(out, objectMapper, entityManager, tweetRepository.streamActive(), Function.identity());
     }
 
     @Override
     public TweetResponseDto getTweetById(Long id) {
-        return tweetMapper.entityToDto(_getActiveTweetById(id));
+        return _getActiveTweetDtoById(id);
     }
 
     @Override
+    @Transactional
     public TweetResponseDto createTweet(TweetRequestDto tweetRequestDto) {
-        User author = _authorizeCredential(tweetRequestDto.getCredentials());
+        User author = authenticator.authorize(tweetRequestDto.getCredentials());
         Tweet tweet = new Tweet();
         tweet.setAuthor(author);
         tweet.setContent(tweetRequestDto.getContent());
-        _processTweetContent(tweet);
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tweet));
+        List<String> mentions = _processTweetContent(tweet);
+        Tweet saved = _saveAndFanOut(tweet);
+        _recordMentions(saved, mentions);
+        resourceVersions.tweetsChanged(author.getId());
+        return tweetMapper.entityToDto(saved);
+    }
+
+    /*
+        The first tweet's credentials are checked once for the whole batch, later tweets must repeat them or leave
+        them out. A tweet that can't be created gets an error in its result and doesn't stop the others.
+     */
+    @Override
+    @Transactional
+    public List<TweetBatchResultDto> createTweets(List<TweetRequestDto> tweetRequestDtos) {
+        if (tweetRequestDtos.isEmpty())
+            throw new BadRequestException("No tweets in the batch");
+        if (tweetRequestDtos.size() > MAX_BATCH_SIZE)
+            throw new BadRequestException("A batch holds at most " + MAX_BATCH_SIZE + " tweets");
+        Credential credential = tweetRequestDtos.get(0).getCredentials();
+        User author = authenticator.authorize(credential);
+
+        List<TweetBatchResultDto> results = new ArrayList<>(tweetRequestDtos.size());
+        List<TweetBatchResultDto> accepted = new ArrayList<>();
+        List<ContentTokenizer.TokenizedContent> tokens = new ArrayList<>();
+        Set<String> labels = new TreeSet<>();
+        for (TweetRequestDto tweetRequestDto : tweetRequestDtos) {
+            TweetBatchResultDto result = new TweetBatchResultDto(results.size(), null, null);
+            results.add(result);
+            if (tweetRequestDto.getCredentials() != null && !credential.equals(tweetRequestDto.getCredentials())) {
+                result.setError("Credentials differ from the first tweet's");
+            } else if (tweetRequestDto.getContent() == null || tweetRequestDto.getContent().isBlank()) {
+                result.setError("Field 'content' is required");
+            } else {
+                ContentTokenizer.TokenizedContent tweetTokens = ContentTokenizer.tokenize(tweetRequestDto.getContent());
+                accepted.add(result);
+                tokens.add(tweetTokens);
+                labels.addAll(tweetTokens.getHashtags());
+            }
+        }
+        if (accepted.isEmpty())
+            return results;
+
+        Date posted = new Date(System.currentTimeMillis());
+        Map<String, Long> hashtagIds = new HashMap<>();
+        if (!labels.isEmpty()) {
+            _upsertHashtags(labels, posted);
+            for (Hashtag hashtag : hashtagRepository.findByLabelIn(labels))
+                hashtagIds.put(hashtag.getLabel(), hashtag.getId());
+            nameFilters.addHashtags(labels);
+            resourceVersions.hashtagsChanged();
+        }
+        List<TweetBatchWriter.Draft> drafts = new ArrayList<>(accepted.size());
+        List<String> uses = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            List<String> tagLabels = tokens.get(i).getHashtags();
+            uses.addAll(tagLabels);
+            drafts.add(new TweetBatchWriter.Draft(tweetRequestDtos.get(accepted.get(i).getIndex()).getContent(),
+                    tagLabels.stream().map(hashtagIds::get).collect(Collectors.toSet()),
+                    tokens.get(i).getMentions().stream().filter(nameFilters::mightBeUsername).collect(Collectors.toSet())));
+        }
+        long[] ids = tweetBatchWriter.insert(author.getId(), posted, drafts);
+        for (int i = 0; i < ids.length; i++)
+            accepted.get(i).setId(ids[i]);
+        if (!uses.isEmpty())
+            trendingHashtags.record(uses);
+        resourceVersions.tweetsChanged(author.getId());
+        return results;
     }
 
     @Override
+    @Transactional
     public void likeTweetById(Long id, Credential credential) {
-        User user = _authorizeCredential(credential);
+        User user = authenticator.authorize(credential);
         Tweet tweet = _getActiveTweetById(id);
-        user.addLikedTweet(tweet);
+        if (relationWriter.isEnabled()) {
+            if (!relationWriter.isLiked(user.getId(), tweet.getId())) {
+                relationWriter.like(user.getId(), tweet.getId());
+                // The like is pending until the writer's batch, which invalidates again for the count
+                hotTweets.invalidate(tweet.getId(), HotTweetCache.Part.LIKES);
+            }
+            return;
+        }
+        // Only the owning side is touched; tweet.getLikes() would load every user who liked it
+        if (!user.getLikedTweets().add(tweet))
+            return;
         userRepository.saveAndFlush(user);
+        tweetRepository.addToLikeCount(tweet.getId(), 1);
+        _invalidateCounters(tweet, HotTweetCache.Part.LIKES);
+        resourceVersions.tweetsChanged(tweet.getAuthor().getId());
     }
 
     @Override
-    public ContextResponseDto getContextForTweet(Long id) {
+    @Transactional
+    public void unlikeTweetById(Long id, Credential credential) {
+        User user = authenticator.authorize(credential);
         Tweet tweet = _getActiveTweetById(id);
+        if (relationWriter.isEnabled()) {
+            if (relationWriter.isLiked(user.getId(), tweet.getId())) {
+                relationWriter.unlike(user.getId(), tweet.getId());
+                hotTweets.invalidate(tweet.getId(), HotTweetCache.Part.LIKES);
+            }
+            return;
+        }
+        if (!user.getLikedTweets().remove(tweet))
+            return;
+        userRepository.saveAndFlush(user);
+        tweetRepository.addToLikeCount(tweet.getId(), -1);
+        _invalidateCounters(tweet, HotTweetCache.Part.LIKES);
+        resourceVersions.tweetsChanged(tweet.getAuthor().getId());
+    }
+
+    @Override
+    public ContextResponseDto getContextForTweet(Long id, Integer depth, Integer limit) {
+        TweetResponseDto target = _getActiveTweetDtoById(id);
+        int maxDepth = _positiveOrUnbounded(depth, "depth");
         ContextResponseDto responseDto = new ContextResponseDto();
-        responseDto.setTarget(tweetMapper.entityToDto(tweet));
-        responseDto.setBefore(tweetMapper.entitiesToDtos(_getTweetsBefore(tweet)));
-        responseDto.setAfter(tweetMapper.entitiesToDtos(_getTweetsAfter(tweet)));
+        responseDto.setTarget(target);
+        responseDto.setBefore(tweetRepository.findAncestors(id, maxDepth));
+        responseDto.setAfter(tweetRepository.findDescendants(id, maxDepth,
+                limit == null ? DEFAULT_CONTEXT_LIMIT : _positiveOrUnbounded(limit, "limit")));
         return responseDto;
     }
 
     @Override
+    @Transactional
     public TweetResponseDto deleteTweetById(Long id, Credential credential) {
         Tweet tweet = _getActiveTweetById(id);
-        User user = _authorizeCredential(credential);
-        if (user != tweet.getAuthor())
+        User user = authenticator.authorize(credential);
+        if (!user.getId().equals(tweet.getAuthor().getId()))
             throw new UnauthorizedException("Bad credentials");
         tweet.setDeleted(true);
+        hotTweets.invalidate(tweet.getId(), HotTweetCache.Part.values());
+        resourceVersions.tweetsChanged(user.getId());
+        if (tweet.getRepostOf() != null) {
+            tweetRepository.addToRepostCount(tweet.getRepostOf().getId(), -1);
+            _invalidateCounters(tweet.getRepostOf(), HotTweetCache.Part.REPOSTS);
+            resourceVersions.tweetsChanged(tweet.getRepostOf().getAuthor().getId());
+        }
+        if (tweet.getInReplyTo() != null) {
+            tweetRepository.addToReplyCount(tweet.getInReplyTo().getId(), -1);
+            _invalidateCounters(tweet.getInReplyTo(), HotTweetCache.Part.REPLIES);
+            resourceVersions.tweetsChanged(tweet.getInReplyTo().getAuthor().getId());
+        }
 
         return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tweet));
     }
 
     @Override
+    @Transactional
     public TweetResponseDto repostTweetById(Long id, Credential credential) {
-        User user = _authorizeCredential(credential);
+        User user = authenticator.authorize(credential);
         Tweet originalTweet = _getActiveTweetById(id);
         Tweet repostTweet = new Tweet();
         repostTweet.setAuthor(user);
         repostTweet.setRepostOf(originalTweet);
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(repostTweet));
+        Tweet saved = _saveAndFanOut(repostTweet);
+        tweetRepository.addToRepostCount(originalTweet.getId(), 1);
+        _invalidateCounters(originalTweet, HotTweetCache.Part.REPOSTS);
+        resourceVersions.tweetsChanged(user.getId(), originalTweet.getAuthor().getId());
+        return tweetMapper.entityToDto(saved);
     }
 
     @Override
     public List<TweetResponseDto> getRepostOfTweetById(Long id) {
-        Tweet tweet = _getActiveTweetById(id);
-        return tweetMapper.entitiesToDtos(_activeTweets(tweet.getReposts()));
+        _getActiveTweetById(id);
+        return tweetRepository.findActiveRepostsOf(id);
     }
 
     @Override
+    @Transactional
     public TweetResponseDto replyTweetById(Long id, TweetRequestDto tweetRequestDto) {
         Tweet tweetToReply = _getActiveTweetById(id);
-        User author = _authorizeCredential(tweetRequestDto.getCredentials());
+        User author = authenticator.authorize(tweetRequestDto.getCredentials());
 
         Tweet tweet = new Tweet();
         tweet.setInReplyTo(tweetToReply);
         tweet.setContent(tweetRequestDto.getContent());
         tweet.setAuthor(author);
-        _processTweetContent(tweet);
-        return tweetMapper.entityToDto(tweetRepository.saveAndFlush(tweet));
+        List<String> mentions = _processTweetContent(tweet);
+        Tweet saved = _saveAndFanOut(tweet);
+        _recordMentions(saved, mentions);
+        tweetRepository.addToReplyCount(tweetToReply.getId(), 1);
+        _invalidateCounters(tweetToReply, HotTweetCache.Part.REPLIES);
+        resourceVersions.tweetsChanged(author.getId(), tweetToReply.getAuthor().getId());
+        return tweetMapper.entityToDto(saved);
     }
 
     @Override
     public List<TweetResponseDto> getRepliesToTweetById(Long id) {
-        Tweet tweet = _getActiveTweetById(id);
-        return tweetMapper.entitiesToDtos(_activeTweets(tweet.getReplies()));
+        _getActiveTweetById(id);
+        return tweetRepository.findActiveRepliesTo(id);
     }
 
     @Override
     public List<UserResponseDto> getMentionInTweetById(Long id) {
-        Tweet tweet = _getActiveTweetById(id);
-        return userMapper.entitiesToDtos(tweet.getUsersMentioned().stream().filter(u -> !u.isDeleted()).collect(Collectors.toList()));
+        _getActiveTweetById(id);
+        return userMapper.entitiesToDtos(userRepository.findActiveMentionedIn(id));
     }
 
     @Override
     public List<UserResponseDto> getLikeForTweet(Long id) {
-        Tweet tweet = _getActiveTweetById(id);
-        return userMapper.entitiesToDtos(tweet.getLikes().stream().filter(u -> !u.isDeleted()).collect(Collectors.toList()));
+        _getActiveTweetById(id);
+        return userMapper.entitiesToDtos(relationWriter.withPendingLikers(id, () -> userRepository.findActiveLikersOf(id)));
     }
 
     @Override
-    public List<TweetResponseDto> getUserTweets(String username) {
-        User user = _getUserByUsername(username);
-        if (user == null || user.isDeleted())
-            throw new NotFoundException("User not found");
+    public List<TweetResponseDto> getUserTweets(String username, CursorRequestDto page) {
+        User user = _getActiveUserByUsername(username);
 
-        List<Tweet> response = user.getTweets().stream().filter(t -> !t.isDeleted()).collect(Collectors.toList());
-        response.sort(Comparator.comparing(Tweet::getPosted));
-        Collections.reverse(response);
-        return tweetMapper.entitiesToDtos(response);
+        return KeysetPagination.fetch(page,
+                (posted, id, pageable) -> tweetRepository.findActiveByAuthorBefore(user.getId(), posted, id, pageable),
+                (posted, id, pageable) -> tweetRepository.findActiveByAuthorAfter(user.getId(), posted, id, pageable));
     }
 
     @Override
-    public List<TweetResponseDto> getTweetsByMention(String username) {
-        User user = _getUserByUsername(username);
-        if (user == null || user.isDeleted())
-            throw new NotFoundException("User not found");
+    public List<TweetResponseDto> getTweetsByMention(String username, CursorRequestDto page) {
+        User user = _getActiveUserByUsername(username);
 
-        List<Tweet> response = user.getMentions().stream().filter(t -> !t.isDeleted()).collect(Collectors.toList());
-        response.sort(Comparator.comparing(Tweet::getPosted));
-        Collections.reverse(response);
-        return tweetMapper.entitiesToDtos(response);
+        return KeysetPagination.fetch(page,
+                (posted, id, pageable) -> mentionRepository.findInboxBefore(user.getId(), posted, id, pageable),
+                (posted, id, pageable) -> mentionRepository.findInboxAfter(user.getId(), posted, id, pageable));
     }
 
     @Override
-    public List<TweetResponseDto> getUserFeed(String username) {
-        User user = _getUserByUsername(username);
-        if (user == null || user.isDeleted())
-            throw new NotFoundException("User not found");
+    public List<TweetResponseDto> getUserFeed(String username, CursorRequestDto page) {
+        User user = _getActiveUserByUsername(username);
 
-        Queue<User> userQueue = new LinkedList<>();
+        return KeysetPagination.fetch(page,
+                (posted, id, pageable) -> timelineRepository.findFeedBefore(user.getId(), posted, id, pageable),
+                (posted, id, pageable) -> timelineRepository.findFeedAfter(user.getId(), posted, id, pageable));
+    }
 
-        userQueue.add(user);
-        userQueue.addAll(user.getFollowing());
-        Set<Tweet> tweetSet = new HashSet<>();
+    @Override
+    public Optional<String> getUserFeedVersion(String username) {
+        if (!followGraph.isLoaded())
+            return Optional.empty();
+        return userRepository.findByCredentialUsernameAndDeletedFalse(username)
+                .map(user -> resourceVersions.feed(user.getId(), followGraph.following(user.getId())));
+    }
 
-        while(!userQueue.isEmpty()) {
-            User author = userQueue.poll();
-            if (!author.isDeleted()) {
-                tweetSet.addAll(author.getTweets().stream().filter(t -> !t.isDeleted()).collect(Collectors.toList()));
-            }
-        }
+    private Tweet _saveAndFanOut(Tweet tweet) {
+        Tweet saved = tweetRepository.saveAndFlush(tweet);
+        timelineRepository.fanOut(saved.getAuthor().getId(), saved.getId(), saved.getPosted());
+        return saved;
+    }
 
-        List<Tweet> response = new ArrayList<>(tweetSet);
-        response.sort(Comparator.comparing(Tweet::getPosted));
-        Collections.reverse(response);
-        return tweetMapper.entitiesToDtos(response);
+    // Cached copies of the upserted hashtags go once the tweet commits, and cached lookups too when a label is new
+    private void _upsertHashtags(Collection<String> labels, Date now) {
+        List<Long> ids = new ArrayList<>();
+        boolean created = false;
+        for (Object[] row : hashtagRepository.upsertAll(labels, now)) {
+            ids.add(((Number) row[0]).longValue());
+            created |= (Boolean) row[1];
+        }
+        boolean evictLookups = created;
+        org.hibernate.Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(org.hibernate.Cache.class);
+        AfterCommit.run(() -> {
+            for (Long id : ids)
+                cache.evict(Hashtag.class, id);
+            if (evictLookups)
+                cache.evictQueryRegion("hashtag-lookups");
+        });
     }
 
-    private User _authorizeCredential(Credential credential) {
-        Optional<User> userOptional = userRepository.findOneByCredential(credential);
-        if (userOptional.isEmpty() || userOptional.get().isDeleted())
-            throw new UnauthorizedException("Bad credentials");
-        return userOptional.get();
+    // The tweet's counters moved: its own entry, the given list, and the list of its parent that embeds it
+    private void _invalidateCounters(Tweet tweet, HotTweetCache.Part list) {
+        hotTweets.invalidate(tweet.getId(), HotTweetCache.Part.TWEET, list);
+        if (tweet.getInReplyTo() != null)
+            hotTweets.invalidate(tweet.getInReplyTo().getId(), HotTweetCache.Part.REPLIES);
+        if (tweet.getRepostOf() != null)
+            hotTweets.invalidate(tweet.getRepostOf().getId(), HotTweetCache.Part.REPOSTS);
     }
 
     private Tweet _getActiveTweetById(Long id) {
-        Optional<Tweet> tweetOptional = tweetRepository.findById(id);
-        if (tweetOptional.isEmpty() || tweetOptional.get().isDeleted())
+        Optional<Tweet> tweetOptional = tweetRepository.findByIdAndDeletedFalse(id);
+        if (tweetOptional.isEmpty())
             throw new BadRequestException("Tweet not found");
         return tweetOptional.get();
     }
 
-    private List<Tweet> _getTweetsBefore(Tweet tweet) {
-        List<Tweet> tweetList = new ArrayList<>();
-        Tweet actualTweet = tweet;
-        while (actualTweet.getInReplyTo() != null) {
-            actualTweet = actualTweet.getInReplyTo();
-            if (!actualTweet.isDeleted())
-                tweetList.add(actualTweet);
-        }
-        return tweetList;
+    private TweetResponseDto _getActiveTweetDtoById(Long id) {
+        Optional<TweetResponseDto> tweetOptional = tweetRepository.findActiveDtoById(id);
+        if (tweetOptional.isEmpty())
+            throw new BadRequestException("Tweet not found");
+        return tweetOptional.get();
     }
 
-    private List<Tweet> _getTweetsAfter(Tweet tweet) {
-        List<Tweet> tweetList = new ArrayList<>();
-        Queue<Tweet> tweetQueue = new LinkedList<>();
-        tweetQueue.addAll(tweet.getReplies());
-
-        while (tweetQueue.size() > 0) {
-            Tweet actualTweet = tweetQueue.poll();
-            if (!actualTweet.isDeleted())
-                tweetList.add(actualTweet);
-            tweetQueue.addAll(actualTweet.getReplies());
-        }
-        return tweetList;
+    private int _positiveOrUnbounded(Integer value, String field) {
+        if (value == null)
+            return Integer.MAX_VALUE;
+        if (value < 1)
+            throw new BadRequestException("Field '" + field + "' must be positive");
+        return value;
     }
 
-    private void _processTweetContent (Tweet tweet) {
-        String content = tweet.getContent();
+    // Attaches the tweet's hashtags and returns the usernames it mentions, recorded once it is saved
+    private List<String> _processTweetContent (Tweet tweet) {
+        ContentTokenizer.TokenizedContent tokens = ContentTokenizer.tokenize(tweet.getContent());
 
-        List<String> mentions = _getMatches(content, "@");
-        List<String> tagLabels = _getMatches(content, "#");
+        List<String> mentions = tokens.getMentions();
+        List<String> tagLabels = tokens.getHashtags();
 
-        for (String tagLabel : tagLabels) {
-            Optional<Hashtag> hashtagOptional = hashtagRepository.findByLabel(tagLabel);
-            Hashtag hashtag;
-            if (hashtagOptional.isEmpty()) {
-                hashtag = new Hashtag();
-                hashtag.setLabel(tagLabel);
-            } else {
-                hashtag = hashtagOptional.get();
-            }
-            hashtag.setLastUsed(new Date(System.currentTimeMillis()));
-            hashtag = hashtagRepository.saveAndFlush(hashtag);
-            tweet.addHashtag(hashtag);
+        if (!tagLabels.isEmpty()) {
+            _upsertHashtags(tagLabels, new Date(System.currentTimeMillis()));
+            // Owning side only, hashtag.getTweets() is every tweet ever tagged with it
+            tweet.getHashtags().addAll(hashtagRepository.findByLabelIn(tagLabels));
+            trendingHashtags.record(tagLabels);
+            nameFilters.addHashtags(tagLabels);
+            resourceVersions.hashtagsChanged();
         }
 
         Set<Hashtag> hashtagSet = new HashSet<>(tweet.getHashtags());
@@ -250,47 +412,19 @@ public class TweetServiceImpl implements TweetService {
                 tweet.removeHashtag(hashtag);
         }
 
-        for (String username : mentions) {
-            User user = _getUserByUsername(username);
-            if (user == null)
-                continue;
-            tweet.addMentionedUser(user);
-        }
-
-        Set<User> mentionSet = new HashSet<>(tweet.getUsersMentioned());
-        for (User mention : mentionSet) {
-            if (!mentions.contains(mention.getCredential().getUsername()))
-                tweet.removeMentionedUser(mention);
-        }
+        return mentions;
     }
 
-    private List<String> _getMatches(String text, String matchBegin) {
-        Set<Character> specialChars = Set.of('@', ' ', '#');
-
-        int pointer = 0;
-        List<String> matchList = new ArrayList<>();
-
-        while (text.indexOf(matchBegin, pointer) >= 0) {
-            pointer = text.indexOf(matchBegin, pointer);
-            String username = "";
-            int auxPointer = pointer + 1;
-            while (auxPointer < text.length() && !specialChars.contains(text.charAt(auxPointer)))
-                username = username + text.charAt(auxPointer++);
-            matchList.add(username);
-            pointer = auxPointer;
-        }
-
-        return  matchList;
+    private void _recordMentions(Tweet saved, List<String> mentions) {
+        List<String> usernames = mentions.stream().filter(nameFilters::mightBeUsername).collect(Collectors.toList());
+        if (!usernames.isEmpty())
+            mentionRepository.insertAll(saved.getId(), saved.getPosted(), usernames);
     }
 
-    private User _getUserByUsername(String username) {
-        Optional<User> userOptional = userRepository.findByCredentialUsername(username);
+    private User _getActiveUserByUsername(String username) {
+        Optional<User> userOptional = userRepository.findByCredentialUsernameAndDeletedFalse(username);
         if (userOptional.isEmpty())
-            return null;
+            throw new NotFoundException("User not found");
         return userOptional.get();
     }
-
-    private List<Tweet> _activeTweets (Collection<Tweet> tweets) {
-        return tweets.stream().filter(t -> !t.isDeleted()).collect(Collectors.toList());
-    }
 }
@@ -1,18 +1,32 @@
 package com.socialmediaassignment.team3.services.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.caches.FollowGraph;
+import com.socialmediaassignment.team3.caches.HotTweetCache;
+import com.socialmediaassignment.team3.caches.NameFilters;
+import com.socialmediaassignment.team3.caches.PrincipalCache;
+import com.socialmediaassignment.team3.caches.ResourceVersions;
 import com.socialmediaassignment.team3.dtos.UserRequestDto;
 import com.socialmediaassignment.team3.dtos.UserResponseDto;
 import com.socialmediaassignment.team3.entities.User;
 import com.socialmediaassignment.team3.entities.embeddable.Credential;
 import com.socialmediaassignment.team3.exceptions.BadRequestException;
 import com.socialmediaassignment.team3.exceptions.NotFoundException;
-import com.socialmediaassignment.team3.exceptions.UnauthorizedException;
 import com.socialmediaassignment.team3.mappers.UserMapper;
+import com.socialmediaassignment.team3.repositories.TimelineRepository;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
 import com.socialmediaassignment.team3.repositories.UserRepository;
 import com.socialmediaassignment.team3.services.UserService;
+import com.socialmediaassignment.team3.utils.AfterCommit;
+import com.socialmediaassignment.team3.writebehind.RelationWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -22,17 +36,35 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final TimelineRepository timelineRepository;
+    private final TweetRepository tweetRepository;
+    private final PrincipalCache principalCache;
+    private final CredentialAuthenticator authenticator;
+    private final NameFilters nameFilters;
+    private final RelationWriter relationWriter;
+    private final FollowGraph followGraph;
+    private final HotTweetCache hotTweets;
+    private final ResourceVersions resourceVersions;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
 
     @Override
     public List<UserResponseDto> getActiveUsers() {
-        List<User> userList = userRepository.findAll();
-        return userMapper.entitiesToDtos(userList.stream().filter( user -> !user.isDeleted()).collect(Collectors.toList()));
+        return userMapper.entitiesToDtos(userRepository.findByDeletedFalse());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamActiveUsers(OutputStream out) throws IOException {
+        StreamingJson.writeArray(out, objectMapper, entityManager, userRepository.streamActive(), userMapper::entityToDto);
     }
 
     @Override
     public UserResponseDto createUser(UserRequestDto userRequestDto) {
-        User user = _getUserByUsername(userRequestDto.getCredential().getUsername());
+        String username = userRequestDto.getCredential().getUsername();
+        // Most signups pick a new name, which the filter rules out without a query
+        User user = nameFilters.mightBeUsername(username) ? _getUserByUsername(username) : null;
         if (user == null)
             user = userMapper.createDtoToEntity(userRequestDto);
         else if (user.isDeleted()) {
@@ -42,78 +74,151 @@ public class UserServiceImpl implements UserService {
         else
             throw new BadRequestException("Username must be unique");
         user.validateUser();
-        return userMapper.entityToDto(userRepository.saveAndFlush(user));
+        boolean reactivated = user.getId() != null;
+        User saved = userRepository.saveAndFlush(user);
+        // Re-activating a deleted user can change their password. Not before the save commits, a concurrent
+        // request could read the old row and put it straight back
+        principalCache.invalidate(saved.getCredential().getUsername());
+        nameFilters.addUsername(saved.getCredential().getUsername());
+        resourceVersions.userChanged(saved.getId());
+        // Their tweets and likes come back
+        if (reactivated)
+            _countRelationsOf(saved, 1);
+        return userMapper.entityToDto(saved);
     }
 
     @Override
     public UserResponseDto getUserByUsername(String username) {
-        User user = _getUserByUsername(username);
-        if (user == null || user.isDeleted())
+        User user = _getActiveUserByUsername(username);
+        if (user == null)
             throw new NotFoundException("User with username '" + username + "' not found");
         return userMapper.entityToDto(user);
     }
 
+    @Override
+    public Optional<String> getUserVersion(String username) {
+        User user = _getActiveUserByUsername(username);
+        return user == null ? Optional.empty() : Optional.of(resourceVersions.user(user.getId()));
+    }
+
     @Override
     public UserResponseDto updateUser(String username, UserRequestDto userRequestDto) {
-        User toUpdate = _authorizeCredential(userRequestDto.getCredential());
+        User toUpdate = authenticator.authorize(userRequestDto.getCredential());
 
         toUpdate.setProfile(userRequestDto.getProfile());
         toUpdate.validateUser();
-        return userMapper.entityToDto(userRepository.saveAndFlush(toUpdate));
+        User saved = userRepository.saveAndFlush(toUpdate);
+        principalCache.invalidate(saved.getCredential().getUsername());
+        // Cached tweets and likes embed the profile
+        hotTweets.invalidateAll();
+        resourceVersions.userChanged(saved.getId());
+        return userMapper.entityToDto(saved);
     }
 
     @Override
     public UserResponseDto deleteUser(String username, Credential credential) {
-        User toDelete = _authorizeCredential(credential);
+        User toDelete = authenticator.authorize(credential);
         toDelete.setDeleted(true);
-        return userMapper.entityToDto(userRepository.saveAndFlush(toDelete));
+        User saved = userRepository.saveAndFlush(toDelete);
+        principalCache.invalidate(saved.getCredential().getUsername());
+        resourceVersions.userChanged(saved.getId());
+        _countRelationsOf(saved, -1);
+        return userMapper.entityToDto(saved);
     }
 
     @Override
+    @Transactional
     public void followUser(String username, Credential credential) {
-        User toBeFollowed = _getUserByUsername(username);
-        User follower = _authorizeCredential(credential);
-        if (!isActive(toBeFollowed))
+        User toBeFollowed = _getActiveUserByUsername(username);
+        User follower = authenticator.authorize(credential);
+        if (toBeFollowed == null)
             throw new BadRequestException("User not found");
-        if (follower.getFollowing().contains(toBeFollowed))
+        if (relationWriter.isEnabled()) {
+            if (relationWriter.isFollowing(follower.getId(), toBeFollowed.getId()))
+                throw new BadRequestException("Already following");
+            relationWriter.follow(follower.getId(), toBeFollowed.getId());
+            return;
+        }
+        // The insert settles concurrent follows, the graph only saves the statement when it already knows
+        if (followGraph.isFollowing(follower.getId(), toBeFollowed.getId())
+                || userRepository.insertFollow(follower.getId(), toBeFollowed.getId()) == 0)
             throw new BadRequestException("Already following");
-        follower.addFollowing(toBeFollowed);
-        userRepository.saveAndFlush(follower);
-        userRepository.saveAndFlush(toBeFollowed);
+        userRepository.addToFollowCounts(follower.getId(), toBeFollowed.getId(), 1);
+        _evictAfterCommit(follower.getId(), toBeFollowed.getId());
+        resourceVersions.userChanged(follower.getId(), toBeFollowed.getId());
+        timelineRepository.backfill(follower.getId(), toBeFollowed.getId());
+        followGraph.follow(follower.getId(), toBeFollowed.getId());
     }
 
     @Override
+    @Transactional
     public void unFollowUser(String username, Credential credential) {
-        User toBeUnfollowed = _getUserByUsername(username);
-        User follower = _authorizeCredential(credential);
-        if (!isActive(toBeUnfollowed))
+        User toBeUnfollowed = _getActiveUserByUsername(username);
+        User follower = authenticator.authorize(credential);
+        if (toBeUnfollowed == null)
             throw new BadRequestException("User not found");
-        if (!follower.getFollowing().contains(toBeUnfollowed))
+        if (relationWriter.isEnabled()) {
+            if (!relationWriter.isFollowing(follower.getId(), toBeUnfollowed.getId()))
+                throw new BadRequestException("Not following");
+            relationWriter.unfollow(follower.getId(), toBeUnfollowed.getId());
+            return;
+        }
+        if (!followGraph.isFollowing(follower.getId(), toBeUnfollowed.getId())
+                || userRepository.deleteFollow(follower.getId(), toBeUnfollowed.getId()) == 0)
             throw new BadRequestException("Not following");
-        follower.removeFollowing(toBeUnfollowed);
-        userRepository.saveAndFlush(follower);
-        userRepository.saveAndFlush(toBeUnfollowed);
+        userRepository.addToFollowCounts(follower.getId(), toBeUnfollowed.getId(), -1);
+        _evictAfterCommit(follower.getId(), toBeUnfollowed.getId());
+        resourceVersions.userChanged(follower.getId(), toBeUnfollowed.getId());
+        // A user always sees their own tweets, even if they once followed themselves
+        if (!follower.getId().equals(toBeUnfollowed.getId()))
+            timelineRepository.trim(follower.getId(), toBeUnfollowed.getId());
+        followGraph.unfollow(follower.getId(), toBeUnfollowed.getId());
     }
 
     @Override
     public List<UserResponseDto> getFollowers(String username) {
-        User user = _getUserByUsername(username);
+        User user = _getActiveUserByUsername(username);
 
-        if (!isActive(user))
+        if (user == null)
             throw new NotFoundException("User not found");
-        return userMapper.entitiesToDtos(user.getFollowers().stream().filter(u -> !u.isDeleted()).collect(Collectors.toList()));
+        return userMapper.entitiesToDtos(
+                relationWriter.withPendingFollowers(user.getId(), () -> followGraph.isLoaded()
+                        ? userRepository.findActiveByIdIn(followGraph.followers(user.getId()))
+                        : userRepository.findActiveFollowersOf(user.getId())));
     }
 
     @Override
     public List<UserResponseDto> getFollowedUsers(String username) {
-        User user = _getUserByUsername(username);
+        User user = _getActiveUserByUsername(username);
 
-        if (!isActive(user))
+        if (user == null)
             throw new NotFoundException("User not found");
-        return userMapper.entitiesToDtos(user.getFollowing().stream().filter(u -> !u.isDeleted()).collect(Collectors.toList()));
+        return userMapper.entitiesToDtos(
+                relationWriter.withPendingFollowing(user.getId(), () -> followGraph.isLoaded()
+                        ? userRepository.findActiveByIdIn(followGraph.following(user.getId()))
+                        : userRepository.findActiveFollowingOf(user.getId())));
     }
 
     // Auxiliary functions
+    // Counters only count active users. Runs once the flag has committed, CounterReconciliationJob repairs a failure
+    // in between
+    private void _countRelationsOf(User user, long delta) {
+        tweetRepository.addToLikeCountsOfLiker(user.getId(), delta);
+        userRepository.addToCountsOfRelations(user.getId(), delta);
+        // Which tweets and users moved isn't known here, and this is rare
+        hotTweets.invalidateAll();
+        resourceVersions.everythingChanged();
+    }
+
+    // The follow counters are updated around the second-level cache, see UserRepository.addToFollowCounts
+    private void _evictAfterCommit(Long... userIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        AfterCommit.run(() -> {
+            for (Long userId : userIds)
+                cache.evict(User.class, userId);
+        });
+    }
+
     private User _getUserByUsername(String username) {
         Optional<User> userOptional = userRepository.findByCredentialUsername(username);
         if (userOptional.isEmpty())
@@ -121,20 +226,13 @@ public class UserServiceImpl implements UserService {
         return userOptional.get();
     }
 
+    private User _getActiveUserByUsername(String username) {
+        return userRepository.findByCredentialUsernameAndDeletedFalse(username).orElse(null);
+    }
+
     private void _setCredentialAndProfile (User user, UserRequestDto userRequestDto) {
         user.setCredential(userRequestDto.getCredential());
         user.setProfile(userRequestDto.getProfile());
     }
 
-    private User _authorizeCredential(Credential credential) {
-        Optional<User> userOptional = userRepository.findOneByCredential(credential);
-        if (userOptional.isEmpty() || userOptional.get().isDeleted())
-            throw new UnauthorizedException("Bad credentials");
-        return userOptional.get();
-    }
-
-    private boolean isActive(User user) {
-        return user != null && !user.isDeleted();
-    }
-
 }
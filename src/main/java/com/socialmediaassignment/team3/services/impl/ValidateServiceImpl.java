@@ -1,5 +1,6 @@
 package com.socialmediaassignment.team3.services.impl;
 
+import com.socialmediaassignment.team3.caches.NameFilters;
 import com.socialmediaassignment.team3.entities.Hashtag;
 import com.socialmediaassignment.team3.entities.User;
 import com.socialmediaassignment.team3.repositories.HashtagRepository;
@@ -15,15 +16,20 @@ import java.util.Optional;
 public class ValidateServiceImpl implements ValidateService {
     private final UserRepository userRepository;
     private final HashtagRepository hashtagRepository;
+    private final NameFilters nameFilters;
 
     @Override
     public boolean existHashtag(String label) {
+        if (!nameFilters.mightBeHashtag(label))
+            return false;
         Optional<Hashtag> hashtagOptional = hashtagRepository.findByLabel(label);
         return hashtagOptional.isPresent();
     }
 
     @Override
     public boolean existUsername(String username) {
+        if (!nameFilters.mightBeUsername(username))
+            return false;
         Optional<User> userOptional = userRepository.findByCredentialUsername(username);
         return userOptional.isPresent();
     }
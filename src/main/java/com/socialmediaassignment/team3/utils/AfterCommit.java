@@ -0,0 +1,27 @@
+package com.socialmediaassignment.team3.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+    Defers in-memory side effects of a write (caches, filters, version watermarks) until its transaction commits,
+    so a rolled back write leaves no trace and readers never see state the database doesn't have yet.
+    Outside a transaction the action runs right away.
+ */
+public final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.socialmediaassignment.team3.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    Thread-safe Bloom filter over strings. mightContain is never false for a string that was put, and is true for
+    other strings with about the false positive rate it was sized for, as long as at most expectedInsertions strings
+    are put. Past that it keeps working, with a growing false positive rate.
+
+    The k bit positions come from two 64-bit hashes combined as h1 + i * h2 (Kirsch and Mitzenmacher).
+ */
+public final class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1)
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.words = new AtomicLongArray(Math.toIntExact(Math.max(1, (bits + 63) / 64)));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+    }
+
+    public void put(String value) {
+        long h1 = _hash(value);
+        long h2 = _mix(h1 + 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0)
+                words.accumulateAndGet(word, mask, (current, add) -> current | add);
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = _hash(value);
+        long h2 = _mix(h1 + 0x9e3779b97f4a7c15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 chars, then mixed so that every output bit depends on every input bit
+    private static long _hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return _mix(hash);
+    }
+
+    // SplitMix64 finalizer
+    private static long _mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
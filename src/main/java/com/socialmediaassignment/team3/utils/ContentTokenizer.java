@@ -0,0 +1,107 @@
+package com.socialmediaassignment.team3.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+    Finds @mentions and #hashtags in tweet content in a single pass.
+
+    A sigil only starts a token at the beginning of the content or after a character that cannot be
+    part of a token, so "mail@example.com" is not a mention. A token is the run of letters, digits,
+    combining marks, '_' and '-' that follows (trailing '-' is dropped), so "@bob," and "(#tag)" give
+    "bob" and "tag". Content is walked by code point, so non-BMP letters are handled as one character.
+ */
+public final class ContentTokenizer {
+    public enum Type {
+        MENTION,
+        HASHTAG
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Token {
+        private final Type type;
+        // Offsets of the text after the sigil, end exclusive
+        private final int start;
+        private final int end;
+        private final String text;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class TokenizedContent {
+        private final List<Token> tokens;
+
+        public List<String> getMentions() {
+            return _distinct(Type.MENTION);
+        }
+
+        public List<String> getHashtags() {
+            return _distinct(Type.HASHTAG);
+        }
+
+        private List<String> _distinct(Type type) {
+            Set<String> texts = new LinkedHashSet<>();
+            for (Token token : tokens) {
+                if (token.getType() == type)
+                    texts.add(token.getText());
+            }
+            return new ArrayList<>(texts);
+        }
+    }
+
+    private ContentTokenizer() {
+    }
+
+    public static TokenizedContent tokenize(String content) {
+        List<Token> tokens = new ArrayList<>();
+        if (content == null)
+            return new TokenizedContent(tokens);
+
+        int length = content.length();
+        int previous = -1;
+        int i = 0;
+        while (i < length) {
+            int codePoint = content.codePointAt(i);
+            Type type = codePoint == '@' ? Type.MENTION : codePoint == '#' ? Type.HASHTAG : null;
+            if (type == null || (previous != -1 && isTokenPart(previous))) {
+                previous = codePoint;
+                i += Character.charCount(codePoint);
+                continue;
+            }
+
+            int start = i + 1;
+            int end = start;
+            while (end < length) {
+                int next = content.codePointAt(end);
+                if (!isTokenPart(next))
+                    break;
+                end += Character.charCount(next);
+            }
+            int trimmedEnd = end;
+            while (trimmedEnd > start && content.charAt(trimmedEnd - 1) == '-')
+                trimmedEnd--;
+            if (trimmedEnd > start)
+                tokens.add(new Token(type, start, trimmedEnd, content.substring(start, trimmedEnd)));
+
+            // Resume at the first character after the token; it is never a token part
+            previous = end > start ? content.codePointBefore(end) : codePoint;
+            i = end;
+        }
+        return new TokenizedContent(tokens);
+    }
+
+    private static boolean isTokenPart(int codePoint) {
+        if (codePoint == '_' || codePoint == '-' || Character.isLetterOrDigit(codePoint))
+            return true;
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+}
@@ -0,0 +1,403 @@
+package com.socialmediaassignment.team3.writebehind;
+
+import com.socialmediaassignment.team3.caches.FollowGraph;
+import com.socialmediaassignment.team3.caches.HotTweetCache;
+import com.socialmediaassignment.team3.caches.ResourceVersions;
+import com.socialmediaassignment.team3.entities.User;
+import com.socialmediaassignment.team3.exceptions.ServiceUnavailableException;
+import com.socialmediaassignment.team3.repositories.TweetRepository;
+import com.socialmediaassignment.team3.repositories.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/*
+    Opt-in write-behind for likes and follows, see WriteBehindProperties. Requests validate and enqueue an event,
+    and one background thread drains the queue, keeps the last event per edge and applies the batch in a single
+    transaction of set-based statements. Counters only move by the rows really inserted or deleted.
+
+    Events that are not committed yet stay pending, and the services lay them over what they read from the
+    database, so users see their own likes and follows right away even with ack=QUEUED.
+
+    The writer has its own single-connection pool. With open-session-in-view a request waiting for its batch
+    keeps its pooled connection, and a storm of them must not starve the writer they are waiting for.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(WriteBehindProperties.class)
+@RequiredArgsConstructor
+public class RelationWriter {
+    private static final String INSERT_LIKES = "WITH ins AS (INSERT INTO tweet_like_mapping (user_id, tweet_id) " +
+            "SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) ON CONFLICT DO NOTHING RETURNING tweet_id) " +
+            "UPDATE tweet t SET like_count = t.like_count + c.n " +
+            "FROM (SELECT tweet_id, count(*) AS n FROM ins GROUP BY tweet_id) c WHERE t.id = c.tweet_id " +
+            "RETURNING t.author_id, t.reply_to_id, t.repost_id";
+    private static final String DELETE_LIKES = "WITH del AS (DELETE FROM tweet_like_mapping m " +
+            "USING unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS p(user_id, tweet_id) " +
+            "WHERE m.user_id = p.user_id AND m.tweet_id = p.tweet_id RETURNING m.tweet_id) " +
+            "UPDATE tweet t SET like_count = t.like_count - c.n " +
+            "FROM (SELECT tweet_id, count(*) AS n FROM del GROUP BY tweet_id) c WHERE t.id = c.tweet_id " +
+            "RETURNING t.author_id, t.reply_to_id, t.repost_id";
+    private static final String INSERT_FOLLOWS = "WITH ins AS (INSERT INTO follower_following_mapping (follower_id, following_id) " +
+            "SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) ON CONFLICT DO NOTHING " +
+            "RETURNING follower_id, following_id) " +
+            "UPDATE user_table u SET following_count = u.following_count + c.following, follower_count = u.follower_count + c.followers " +
+            "FROM (SELECT id, sum(following) AS following, sum(followers) AS followers FROM (" +
+            "SELECT follower_id AS id, 1 AS following, 0 AS followers FROM ins " +
+            "UNION ALL SELECT following_id, 0, 1 FROM ins) e GROUP BY id) c WHERE u.id = c.id";
+    private static final String DELETE_FOLLOWS = "WITH del AS (DELETE FROM follower_following_mapping m " +
+            "USING unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS p(follower_id, following_id) " +
+            "WHERE m.follower_id = p.follower_id AND m.following_id = p.following_id " +
+            "RETURNING m.follower_id, m.following_id) " +
+            "UPDATE user_table u SET following_count = u.following_count - c.following, follower_count = u.follower_count - c.followers " +
+            "FROM (SELECT id, sum(following) AS following, sum(followers) AS followers FROM (" +
+            "SELECT follower_id AS id, 1 AS following, 0 AS followers FROM del " +
+            "UNION ALL SELECT following_id, 0, 1 FROM del) e GROUP BY id) c WHERE u.id = c.id";
+    private static final String BACKFILL_TIMELINES = "INSERT INTO timeline_entry (owner_id, tweet_id, posted) " +
+            "SELECT p.owner_id, t.id, t.created_on " +
+            "FROM unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS p(owner_id, author_id) " +
+            "JOIN tweet t ON t.author_id = p.author_id ON CONFLICT DO NOTHING";
+    // A user always keeps their own tweets, as in UserServiceImpl.unFollowUser
+    private static final String TRIM_TIMELINES = "DELETE FROM timeline_entry e " +
+            "USING unnest(CAST(? AS bigint[]), CAST(? AS bigint[])) AS p(owner_id, author_id), tweet t " +
+            "WHERE p.owner_id <> p.author_id AND e.owner_id = p.owner_id " +
+            "AND e.tweet_id = t.id AND t.author_id = p.author_id";
+
+    private enum Kind { LIKE, FOLLOW }
+
+    private final WriteBehindProperties properties;
+    private final DataSourceProperties dataSourceProperties;
+    private final TweetRepository tweetRepository;
+    private final UserRepository userRepository;
+    private final FollowGraph followGraph;
+    private final HotTweetCache hotTweets;
+    private final ResourceVersions resourceVersions;
+    private final EntityManagerFactory entityManagerFactory;
+    private final PendingEdges pendingLikes = new PendingEdges();
+    private final PendingEdges pendingFollows = new PendingEdges();
+
+    private BlockingQueue<Event> queue;
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled())
+            return;
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("write-behind");
+        dataSource.setMaximumPoolSize(1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        running = true;
+        writer = new Thread(this::_run, "write-behind");
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null)
+            return;
+        // New events are turned away, the writer finishes whatever is queued before it exits
+        running = false;
+        writer.join();
+        // Events offered as the writer exited, or all of them if it was interrupted
+        List<Event> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            _write(batch);
+            batch.clear();
+        }
+        dataSource.close();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void like(long userId, long tweetId) {
+        _submit(pendingLikes, new Event(Kind.LIKE, userId, tweetId, true));
+    }
+
+    public void unlike(long userId, long tweetId) {
+        _submit(pendingLikes, new Event(Kind.LIKE, userId, tweetId, false));
+    }
+
+    public void follow(long followerId, long followingId) {
+        _submit(pendingFollows, new Event(Kind.FOLLOW, followerId, followingId, true));
+    }
+
+    public void unfollow(long followerId, long followingId) {
+        _submit(pendingFollows, new Event(Kind.FOLLOW, followerId, followingId, false));
+    }
+
+    public boolean isLiked(long userId, long tweetId) {
+        Event pending = pendingLikes.get(userId, tweetId);
+        return pending != null ? pending.present : tweetRepository.isLikedBy(userId, tweetId);
+    }
+
+    public boolean isFollowing(long followerId, long followingId) {
+        Event pending = pendingFollows.get(followerId, followingId);
+        return pending != null ? pending.present : followGraph.isFollowing(followerId, followingId);
+    }
+
+    /*
+        The pending edges are read before the query runs: an event committed in between then shows up in both,
+        rather than in neither.
+     */
+    public List<User> withPendingLikers(long tweetId, Supplier<List<User>> likers) {
+        Map<Long, Boolean> pending = pendingLikes.to(tweetId);
+        return _overlay(likers.get(), pending);
+    }
+
+    public List<User> withPendingFollowers(long userId, Supplier<List<User>> followers) {
+        Map<Long, Boolean> pending = pendingFollows.to(userId);
+        return _overlay(followers.get(), pending);
+    }
+
+    public List<User> withPendingFollowing(long userId, Supplier<List<User>> following) {
+        Map<Long, Boolean> pending = pendingFollows.from(userId);
+        return _overlay(following.get(), pending);
+    }
+
+    private void _submit(PendingEdges pending, Event event) {
+        if (!isEnabled())
+            throw new IllegalStateException("Write-behind is disabled");
+        if (!running)
+            throw new ServiceUnavailableException("Shutting down, try again later");
+        Event previous = pending.put(event);
+        try {
+            if (!queue.offer(event, properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                pending.restore(event, previous);
+                throw new ServiceUnavailableException("Too many pending writes, try again later");
+            }
+            // stop() may have drained the queue for the last time since the check, whoever removes the event owns it
+            if (!running && queue.remove(event)) {
+                pending.restore(event, previous);
+                throw new ServiceUnavailableException("Shutting down, try again later");
+            }
+            if (properties.getAck() == WriteBehindProperties.Ack.WRITTEN)
+                event.written.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for the write");
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Timed out waiting for the write, it may still be applied");
+        } catch (ExecutionException e) {
+            throw new ServiceUnavailableException("The write failed, try again later");
+        }
+    }
+
+    private void _run() {
+        List<Event> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                _write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void _write(List<Event> batch) {
+        // Only the last event per edge is applied, a like followed by an unlike cancels out
+        Map<Edge, Event> latest = new HashMap<>();
+        for (Event event : batch)
+            latest.put(new Edge(event.kind, event.from, event.to), event);
+        List<Event> likes = new ArrayList<>();
+        List<Event> unlikes = new ArrayList<>();
+        List<Event> follows = new ArrayList<>();
+        List<Event> unfollows = new ArrayList<>();
+        for (Event event : latest.values()) {
+            if (event.kind == Kind.LIKE)
+                (event.present ? likes : unlikes).add(event);
+            else
+                (event.present ? follows : unfollows).add(event);
+        }
+        // Tweets whose like counts moved
+        List<Liked> liked = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                liked.addAll(_updateReturning(INSERT_LIKES, likes));
+                liked.addAll(_updateReturning(DELETE_LIKES, unlikes));
+                _update(INSERT_FOLLOWS, follows);
+                _update(BACKFILL_TIMELINES, follows);
+                _update(DELETE_FOLLOWS, unfollows);
+                _update(TRIM_TIMELINES, unfollows);
+            });
+            // Before the pending edges are dropped, so readers falling through to the graph see the new state
+            follows.forEach(event -> followGraph.follow(event.from, event.to));
+            unfollows.forEach(event -> followGraph.unfollow(event.from, event.to));
+            // The counters were written past Hibernate, cached users would keep the old ones
+            Cache cache = entityManagerFactory.getCache();
+            for (List<Event> events : List.of(follows, unfollows)) {
+                for (Event event : events) {
+                    cache.evict(User.class, event.from);
+                    cache.evict(User.class, event.to);
+                    resourceVersions.userChanged(event.from, event.to);
+                }
+            }
+            resourceVersions.tweetsChanged(liked.stream().mapToLong(tweet -> tweet.authorId).toArray());
+            // Like counts moved as well
+            for (List<Event> events : List.of(likes, unlikes)) {
+                for (Event event : events)
+                    hotTweets.invalidate(event.to, HotTweetCache.Part.TWEET, HotTweetCache.Part.LIKES);
+            }
+            // Replies and reposts whose counts moved also show in their parent's lists
+            for (Liked tweet : liked) {
+                if (tweet.inReplyToId != null)
+                    hotTweets.invalidate(tweet.inReplyToId, HotTweetCache.Part.REPLIES);
+                if (tweet.repostOfId != null)
+                    hotTweets.invalidate(tweet.repostOfId, HotTweetCache.Part.REPOSTS);
+            }
+            for (Event event : batch)
+                event.written.complete(null);
+        } catch (RuntimeException e) {
+            log.error("Failed to write a batch of {} like and follow events", batch.size(), e);
+            for (Event event : batch)
+                event.written.completeExceptionally(e);
+        } finally {
+            for (Event event : batch)
+                (event.kind == Kind.LIKE ? pendingLikes : pendingFollows).restore(event, null);
+        }
+    }
+
+    private void _update(String sql, List<Event> events) {
+        if (events.isEmpty())
+            return;
+        long[] from = events.stream().mapToLong(event -> event.from).toArray();
+        long[] to = events.stream().mapToLong(event -> event.to).toArray();
+        jdbcTemplate.update(sql, from, to);
+    }
+
+    private List<Liked> _updateReturning(String sql, List<Event> events) {
+        if (events.isEmpty())
+            return List.of();
+        long[] from = events.stream().mapToLong(event -> event.from).toArray();
+        long[] to = events.stream().mapToLong(event -> event.to).toArray();
+        return jdbcTemplate.query(sql, (rs, row) -> new Liked(rs.getLong("author_id"),
+                rs.getObject("reply_to_id", Long.class), rs.getObject("repost_id", Long.class)), from, to);
+    }
+
+    private List<User> _overlay(List<User> users, Map<Long, Boolean> pending) {
+        if (pending.isEmpty())
+            return users;
+        List<User> result = new ArrayList<>();
+        for (User user : users) {
+            if (pending.getOrDefault(user.getId(), true))
+                result.add(user);
+            pending.remove(user.getId());
+        }
+        List<Long> added = new ArrayList<>();
+        pending.forEach((id, present) -> {
+            if (present)
+                added.add(id);
+        });
+        if (!added.isEmpty()) {
+            for (User user : userRepository.findAllById(added))
+                if (!user.isDeleted())
+                    result.add(user);
+        }
+        return result;
+    }
+
+    @RequiredArgsConstructor
+    private static class Event {
+        private final Kind kind;
+        private final long from;
+        private final long to;
+        // true adds the edge, false removes it
+        private final boolean present;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+    }
+
+    @Value
+    private static class Liked {
+        long authorId;
+        Long inReplyToId;
+        Long repostOfId;
+    }
+
+    @Value
+    private static class Edge {
+        Kind kind;
+        long from;
+        long to;
+    }
+
+    // Latest uncommitted event per edge, indexed from both ends
+    private static class PendingEdges {
+        private final Map<Long, Map<Long, Event>> byFrom = new HashMap<>();
+        private final Map<Long, Map<Long, Event>> byTo = new HashMap<>();
+
+        synchronized Event get(long from, long to) {
+            return byFrom.getOrDefault(from, Collections.emptyMap()).get(to);
+        }
+
+        synchronized Event put(Event event) {
+            byTo.computeIfAbsent(event.to, k -> new HashMap<>()).put(event.from, event);
+            return byFrom.computeIfAbsent(event.from, k -> new HashMap<>()).put(event.to, event);
+        }
+
+        // Puts back 'previous' (or nothing) unless a newer event for the edge has arrived since
+        synchronized void restore(Event event, Event previous) {
+            if (get(event.from, event.to) != event)
+                return;
+            if (previous != null) {
+                put(previous);
+                return;
+            }
+            _remove(byFrom, event.from, event.to);
+            _remove(byTo, event.to, event.from);
+        }
+
+        // Pending state of every edge leaving 'from', keyed by the other end
+        synchronized Map<Long, Boolean> from(long from) {
+            return _states(byFrom.get(from));
+        }
+
+        synchronized Map<Long, Boolean> to(long to) {
+            return _states(byTo.get(to));
+        }
+
+        private static Map<Long, Boolean> _states(Map<Long, Event> events) {
+            Map<Long, Boolean> states = new HashMap<>();
+            if (events != null)
+                events.forEach((id, event) -> states.put(id, event.present));
+            return states;
+        }
+
+        private static void _remove(Map<Long, Map<Long, Event>> index, long key, long other) {
+            Map<Long, Event> events = index.get(key);
+            events.remove(other);
+            if (events.isEmpty())
+                index.remove(key);
+        }
+    }
+}
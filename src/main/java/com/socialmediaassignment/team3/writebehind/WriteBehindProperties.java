@@ -0,0 +1,32 @@
+package com.socialmediaassignment.team3.writebehind;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tweeter.write-behind")
+public class WriteBehindProperties {
+    public enum Ack {
+        // Answer once the event is queued; it is lost if the process dies before the writer gets to it
+        QUEUED,
+        // Answer once the batch holding the event is committed
+        WRITTEN
+    }
+
+    // Off by default, likes and follows are then written by the request that makes them
+    private boolean enabled = false;
+
+    private Ack ack = Ack.WRITTEN;
+
+    private int queueCapacity = 10_000;
+
+    // Most events written in one transaction, anything queued after them waits for the next one
+    private int batchSize = 1_000;
+
+    // How long a request waits for room in the queue, and with ack=WRITTEN for its batch, before failing with 503
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,7 @@
+-- Run by Hibernate after it creates the schema, and by Spring on every start under the dataset profile.
+-- Every read path filters out soft-deleted rows in SQL, so these indexes only cover active tweets and dead
+-- rows take no space in them.
+CREATE INDEX IF NOT EXISTS idx_tweet_active_posted ON tweet (created_on, id) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_tweet_active_author ON tweet (author_id, created_on, id) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_tweet_active_reply_to ON tweet (reply_to_id, created_on, id) WHERE deleted = false;
+CREATE INDEX IF NOT EXISTS idx_tweet_active_repost ON tweet (repost_id, created_on, id) WHERE deleted = false;
@@ -0,0 +1,133 @@
+package com.socialmediaassignment.team3.caches;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmediaassignment.team3.metrics.QueryCountsTaskDecorator;
+import com.socialmediaassignment.team3.reads.ReadExecutor;
+import com.socialmediaassignment.team3.reads.ReadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HotTweetCacheTests {
+
+	private final AtomicInteger loads = new AtomicInteger();
+	private final ReadExecutor readExecutor = asyncReadExecutor();
+	private final HotTweetCache cache = new HotTweetCache(new HotTweetProperties(), readExecutor, new ObjectMapper(),
+			new SimpleMeterRegistry());
+
+	@AfterEach
+	void stop() {
+		readExecutor.stop();
+	}
+
+	@Test
+	void concurrentMissesShareOneLoad() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<byte[]> first = cache.get(1, HotTweetCache.Part.TWEET, () -> {
+			await(release);
+			return load("slow");
+		});
+		CompletableFuture<byte[]> second = cache.get(1, HotTweetCache.Part.TWEET, () -> load("other"));
+		assertFalse(first.isDone());
+		assertSame(first, second);
+
+		release.countDown();
+		assertEquals("\"slow\"", json(second));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void invalidationDropsOnlyTheGivenParts() throws Exception {
+		json(cache.get(1, HotTweetCache.Part.TWEET, () -> load("tweet")));
+		json(cache.get(1, HotTweetCache.Part.LIKES, () -> load("likes")));
+		cache.invalidate(1, HotTweetCache.Part.TWEET);
+
+		assertEquals("\"tweet 2\"", json(cache.get(1, HotTweetCache.Part.TWEET, () -> load("tweet 2"))));
+		assertEquals("\"likes\"", json(cache.get(1, HotTweetCache.Part.LIKES, () -> load("likes 2"))));
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	void invalidationInATransactionWaitsForTheCommit() throws Exception {
+		json(cache.get(1, HotTweetCache.Part.TWEET, () -> load("before")));
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.invalidate(1, HotTweetCache.Part.TWEET);
+			assertEquals("\"before\"", json(cache.get(1, HotTweetCache.Part.TWEET, () -> load("during"))));
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertEquals("\"after\"", json(cache.get(1, HotTweetCache.Part.TWEET, () -> load("after"))));
+	}
+
+	@Test
+	void blockingLoadsRunOutsideTheCache() throws Exception {
+		HotTweetCache blocking = blockingCache();
+		AtomicReference<CompletableFuture<byte[]>> nested = new AtomicReference<>();
+		CompletableFuture<byte[]> outer = blocking.get(1, HotTweetCache.Part.TWEET, () -> {
+			nested.set(blocking.get(1, HotTweetCache.Part.TWEET, () -> load("nested")));
+			return load("outer");
+		});
+
+		assertEquals("\"outer\"", json(outer));
+		assertSame(outer, nested.get());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void failedBlockingLoadsAreThrownAndNotKept() throws Exception {
+		HotTweetCache blocking = blockingCache();
+		assertThrows(IllegalStateException.class, () -> blocking.get(1, HotTweetCache.Part.TWEET, () -> {
+			throw new IllegalStateException("down");
+		}));
+
+		assertEquals("\"up\"", json(blocking.get(1, HotTweetCache.Part.TWEET, () -> load("up"))));
+	}
+
+	private String load(String value) {
+		loads.incrementAndGet();
+		return value;
+	}
+
+	private static String json(CompletableFuture<byte[]> future) throws Exception {
+		return new String(future.get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static HotTweetCache blockingCache() {
+		ReadExecutor executor = new ReadExecutor(new ReadProperties(), new QueryCountsTaskDecorator());
+		executor.start();
+		return new HotTweetCache(new HotTweetProperties(), executor, new ObjectMapper(), new SimpleMeterRegistry());
+	}
+
+	private static ReadExecutor asyncReadExecutor() {
+		ReadProperties properties = new ReadProperties();
+		properties.setMode(ReadProperties.Mode.ASYNC);
+		ReadExecutor executor = new ReadExecutor(properties, new QueryCountsTaskDecorator());
+		executor.start();
+		return executor;
+	}
+}
@@ -0,0 +1,38 @@
+package com.socialmediaassignment.team3.caches;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class MutableClock extends Clock {
+	private long millis = 1_700_000_000_000L;
+
+	void advanceMinutes(long minutes) {
+		millis += minutes * 60_000;
+	}
+
+	void advanceMillis(long delta) {
+		millis += delta;
+	}
+
+	@Override
+	public long millis() {
+		return millis;
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis);
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return ZoneOffset.UTC;
+	}
+
+	@Override
+	public Clock withZone(ZoneId zone) {
+		return this;
+	}
+}
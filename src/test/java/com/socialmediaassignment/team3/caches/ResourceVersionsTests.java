@@ -0,0 +1,84 @@
+package com.socialmediaassignment.team3.caches;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ResourceVersionsTests {
+
+	private final MutableClock clock = new MutableClock();
+	private final ResourceVersions versions = new ResourceVersions(clock);
+
+	@Test
+	void feedChangesWithItsOwnerAndTheAuthorsTheyFollow() {
+		long[] following = {2, 3};
+		String feed = versions.feed(1, following);
+
+		versions.tweetsChanged(4);
+		versions.userChanged(5);
+		assertEquals(feed, versions.feed(1, following));
+
+		versions.tweetsChanged(3);
+		String afterTweet = versions.feed(1, following);
+		assertNotEquals(feed, afterTweet);
+
+		versions.userChanged(2);
+		String afterProfile = versions.feed(1, following);
+		assertNotEquals(afterTweet, afterProfile);
+
+		versions.userChanged(1);
+		assertNotEquals(afterProfile, versions.feed(1, following));
+	}
+
+	@Test
+	void usersAndHashtagsChangeIndependently() {
+		String user = versions.user(1);
+		String hashtags = versions.hashtags();
+
+		versions.tweetsChanged(1);
+		versions.userChanged(2);
+		assertEquals(user, versions.user(1));
+		assertEquals(hashtags, versions.hashtags());
+
+		versions.everythingChanged();
+		assertNotEquals(user, versions.user(1));
+		assertNotEquals(hashtags, versions.hashtags());
+	}
+
+	@Test
+	void changedUsersChangeAgainOnceTheirCachedCopiesExpire() {
+		versions.userChanged(1);
+		String changed = versions.user(1);
+		long[] following = {1};
+		String feed = versions.feed(2, following);
+
+		clock.advanceMillis(30_000);
+		assertEquals(changed, versions.user(1));
+
+		clock.advanceMinutes(1);
+		String settled = versions.user(1);
+		assertNotEquals(changed, settled);
+		assertNotEquals(feed, versions.feed(2, following));
+
+		clock.advanceMinutes(5);
+		assertEquals(settled, versions.user(1));
+	}
+
+	@Test
+	void changesInATransactionWaitForTheCommit() {
+		String user = versions.user(1);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			versions.userChanged(1);
+			assertEquals(user, versions.user(1));
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertNotEquals(user, versions.user(1));
+	}
+}
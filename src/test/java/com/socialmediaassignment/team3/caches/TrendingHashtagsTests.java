@@ -0,0 +1,60 @@
+package com.socialmediaassignment.team3.caches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrendingHashtagsTests {
+
+	private final MutableClock clock = new MutableClock();
+	private final TrendingHashtags trending = new TrendingHashtags(clock);
+
+	@Test
+	void ranksByUsesThenLabel() {
+		trending.record(List.of("java", "spring"));
+		trending.record(List.of("spring", "boot"));
+		trending.record(List.of("spring"));
+
+		assertEquals(List.of("spring=3", "boot=1", "java=1"), top(TrendingHashtags.Window.FIVE_MINUTES, 10));
+		assertEquals(List.of("spring=3"), top(TrendingHashtags.Window.FIVE_MINUTES, 1));
+	}
+
+	@Test
+	void dropsUsesAsTheyLeaveEachWindow() {
+		trending.record(List.of("old"));
+		clock.advanceMinutes(3);
+		trending.record(List.of("new", "old"));
+
+		clock.advanceMinutes(2);
+		assertEquals(List.of("new=1", "old=1"), top(TrendingHashtags.Window.FIVE_MINUTES, 10));
+		assertEquals(List.of("old=2", "new=1"), top(TrendingHashtags.Window.HOUR, 10));
+
+		clock.advanceMinutes(60);
+		assertEquals(List.of(), top(TrendingHashtags.Window.HOUR, 10));
+		assertEquals(List.of("old=2", "new=1"), top(TrendingHashtags.Window.DAY, 10));
+
+		clock.advanceMinutes(24 * 60);
+		assertEquals(List.of(), top(TrendingHashtags.Window.DAY, 10));
+	}
+
+	@Test
+	void startsOverAfterAnIdleDay() {
+		trending.record(List.of("java"));
+		clock.advanceMinutes(3 * 24 * 60);
+		trending.record(List.of("spring"));
+
+		assertEquals(List.of("spring=1"), top(TrendingHashtags.Window.DAY, 10));
+	}
+
+	private List<String> top(TrendingHashtags.Window window, int limit) {
+		// Snapshots are reused for a second, step past that so every read sees the latest counts
+		clock.advanceMillis(1_000);
+		return trending.top(window, limit).stream()
+				.map(trend -> trend.getLabel() + "=" + trend.getUses())
+				.collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.socialmediaassignment.team3.metrics;
+
+import com.socialmediaassignment.team3.exceptions.QueryBudgetExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+	Goes through every endpoint with several rows behind each list, so a statement per row takes a request over its
+	budget, and fail mode turns that into an exception out of MockMvc naming the endpoint and the statement.
+ */
+@SpringBootTest(properties = "tweeter.query-budget.mode=fail")
+@AutoConfigureMockMvc
+class QueryBudgetTests {
+
+	private static final List<String> USERS = List.of("budget-a", "budget-b", "budget-c", "budget-d");
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	void everyEndpointStaysWithinItsBudget() throws Exception {
+		for (String user : USERS)
+			perform(post("/users"), "{\"credential\":%s,\"profile\":{\"email\":\"%s@example.com\"}}", credential(user), user);
+		for (String user : USERS.subList(1, 4))
+			perform(post("/users/@budget-a/follow"), credential(user));
+		for (String user : USERS.subList(1, 3))
+			perform(post("/users/@" + user + "/follow"), credential("budget-a"));
+
+		long first = 0;
+		for (String user : USERS) {
+			for (int i = 0; i < 3; i++) {
+				String id = perform(post("/tweets"),
+						"{\"content\":\"#budget #tag%d @budget-a @budget-b @budget-c @budget-d @nobody\",\"credentials\":%s}",
+						i, credential(user));
+				if (first == 0)
+					first = Long.parseLong(id.replaceAll(".*?\"id\":(\\d+).*", "$1"));
+			}
+		}
+		perform(post("/tweets/batch"), "[{\"content\":\"#budget #batch @budget-b\",\"credentials\":%s}," +
+				"{\"content\":\"#tag0 #tag1 @budget-c @budget-d\"},{\"content\":\"@budget-a\"}]", credential("budget-a"));
+		perform(post("/tweets/batch").contentType("application/x-ndjson").content(String.format(
+				"{\"content\":\"#budget #lines\",\"credentials\":%s}\n{\"content\":\"@budget-a\"}\n", credential("budget-b"))),
+				null);
+		for (String user : USERS.subList(1, 4)) {
+			perform(post("/tweets/" + first + "/like"), credential(user));
+			perform(post("/tweets/" + first + "/repost"), credential(user));
+			perform(post("/tweets/" + first + "/reply"),
+					"{\"content\":\"reply @budget-a #budget\",\"credentials\":%s}", credential(user));
+		}
+
+		for (String uri : List.of("/tweets", "/tweets?stream=true", "/tweets/" + first, "/tweets/" + first + "/likes",
+				"/tweets/" + first + "/context", "/tweets/" + first + "/reposts", "/tweets/" + first + "/replies",
+				"/tweets/" + first + "/mentions", "/users", "/users?stream=true", "/users/@budget-a",
+				"/users/@budget-a/followers", "/users/@budget-a/following", "/users/@budget-a/tweets",
+				"/users/@budget-a/mentions", "/users/@budget-a/feed", "/tags", "/tags?stream=true", "/tags/trending",
+				"/tags/budget", "/validate/username/exists/@budget-a", "/validate/username/available/@budget-e",
+				"/validate/tag/exists/budget"))
+			perform(get(uri), null);
+
+		perform(post("/tweets/" + first + "/unlike"), credential("budget-b"));
+		perform(post("/users/@budget-a/unfollow"), credential("budget-b"));
+		perform(patch("/users/@budget-c"), "{\"credential\":%s,\"profile\":{\"email\":\"c@example.org\"}}",
+				credential("budget-c"));
+		perform(delete("/tweets/" + first), credential("budget-a"));
+		perform(delete("/users/@budget-d"), credential("budget-d"));
+		perform(post("/users"), "{\"credential\":%s,\"profile\":{\"email\":\"d@example.org\"}}", credential("budget-d"));
+	}
+
+	@Test
+	void failModeThrowsOnTheFirstStatementOverBudget() {
+		QueryCounts counts = new QueryCounts();
+		counts.limit("TweetController.getTweetById(..)", 2, true);
+
+		counts.statementPrepared("select 1");
+		counts.statementPrepared("select 2");
+		QueryBudgetExceededException exception =
+				assertThrows(QueryBudgetExceededException.class, () -> counts.statementPrepared("select 3"));
+		assertTrue(exception.getMessage().contains("over its budget of 2: select 3"));
+	}
+
+	@Test
+	void warnModeOnlyLogs() {
+		QueryCounts counts = new QueryCounts();
+		counts.limit("TweetController.getTweetById(..)", 1, false);
+
+		counts.statementPrepared("select 1");
+		assertDoesNotThrow(() -> counts.statementPrepared("select 2"));
+		assertDoesNotThrow(() -> counts.statementPrepared("select 3"));
+	}
+
+	private String perform(MockHttpServletRequestBuilder request, String body, Object... args) throws Exception {
+		if (body != null)
+			request.contentType(MediaType.APPLICATION_JSON).content(String.format(body, args));
+		MvcResult result = mvc.perform(request).andReturn();
+		if (result.getRequest().isAsyncStarted())
+			result = mvc.perform(asyncDispatch(result)).andReturn();
+		int status = result.getResponse().getStatus();
+		assertTrue(status >= 200 && status < 300,
+				result.getRequest().getMethod() + " " + result.getRequest().getRequestURI() + " failed with " + status
+						+ ": " + result.getResponse().getContentAsString());
+		return result.getResponse().getContentAsString();
+	}
+
+	private static String credential(String username) {
+		return String.format("{\"username\":\"%s\",\"password\":\"password\"}", username);
+	}
+}
@@ -0,0 +1,39 @@
+package com.socialmediaassignment.team3.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+	@Test
+	void containsEveryValuePut() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++)
+			filter.put("user-" + i);
+
+		for (int i = 0; i < 10_000; i++)
+			assertTrue(filter.mightContain("user-" + i));
+	}
+
+	@Test
+	void keepsFalsePositivesNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++)
+			filter.put("user-" + i);
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("other-" + i))
+				falsePositives++;
+		}
+		assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+	}
+
+	@Test
+	void rejectsInvalidSizing() {
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.5));
+	}
+}
@@ -0,0 +1,44 @@
+package com.socialmediaassignment.team3.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContentTokenizerTests {
+
+	@Test
+	void findsMentionsAndHashtagsInOnePass() {
+		ContentTokenizer.TokenizedContent tokens = ContentTokenizer.tokenize("hey @felo, look at #spring-boot and #java!");
+
+		assertEquals(List.of("felo"), tokens.getMentions());
+		assertEquals(List.of("spring-boot", "java"), tokens.getHashtags());
+		ContentTokenizer.Token first = tokens.getTokens().get(0);
+		assertEquals(5, first.getStart());
+		assertEquals(9, first.getEnd());
+	}
+
+	@Test
+	void stopsAtPunctuationAndIgnoresEmbeddedSigils() {
+		ContentTokenizer.TokenizedContent tokens = ContentTokenizer.tokenize("(#tag) mail@example.com @@bob #- #tag- @felo.");
+
+		assertEquals(List.of("bob", "felo"), tokens.getMentions());
+		assertEquals(List.of("tag"), tokens.getHashtags());
+	}
+
+	@Test
+	void keepsUnicodeLettersAndMarks() {
+		ContentTokenizer.TokenizedContent tokens = ContentTokenizer.tokenize("#café #日本語 #cafe\u0301 #𝒳y @josé");
+
+		assertEquals(List.of("café", "日本語", "cafe\u0301", "𝒳y"), tokens.getHashtags());
+		assertEquals(List.of("josé"), tokens.getMentions());
+	}
+
+	@Test
+	void handlesEmptyContent() {
+		assertEquals(List.of(), ContentTokenizer.tokenize(null).getTokens());
+		assertEquals(List.of(), ContentTokenizer.tokenize("@ # plain text").getTokens());
+	}
+
+}